@@ -0,0 +1,156 @@
+package rigel.coordinates;
+
+import static jdk.incubator.vector.VectorOperators.D2L;
+import static jdk.incubator.vector.VectorOperators.NE;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorSpecies;
+
+// A ProjectionKernel processing SPECIES.length() stars at a time, using the jdk.incubator.vector
+// module. Remaining stars are processed by the scalar kernel.
+//
+// applyToUnitVectors and rotate perform the same operations, in the same order, as the scalar
+// kernel, and their results are therefore identical. apply computes sines and cosines with polynomials, whose
+// absolute error is below 1e-15 for the arguments used here (|x| ≤ 4π), instead of Math.sin and
+// Math.cos.
+enum VectorProjectionKernel implements ProjectionKernel {
+    INSTANCE;
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    // Indices of the x coordinates in xy, relative to that of the first lane
+    private static final int[] X_INDICES = new int[SPECIES.length()];
+
+    static {
+        for (var i = 0; i < X_INDICES.length; i += 1)
+            X_INDICES[i] = 2 * i;
+    }
+
+    // Argument reduction by multiples of π/2, whose value is split in two parts (as in fdlibm)
+    private static final double TWO_OVER_PI = 0x1.45f306dc9c883p-1;
+    private static final double PI_OVER_2_HI = 0x1.921fb544p0;
+    private static final double PI_OVER_2_LO = 0x1.0b4611a626331p-34;
+    // Adding then subtracting this number rounds to the nearest integer (for |x| < 2^51)
+    private static final double ROUNDING_CONSTANT = 0x1.8p52;
+
+    // Taylor coefficients of sin(x) / x - 1 in x², and of cos(x) - 1 + x²/2 in x², starting at x⁴,
+    // truncated so that the error on [-π/4, π/4] is below 1e-16.
+    private static final double[] SIN_COEFFICIENTS = {
+            -1d / 6, 1d / 120, -1d / 5_040, 1d / 362_880,
+            -1d / 39_916_800, 1d / 6_227_020_800d, -1d / 1_307_674_368_000d
+    };
+    private static final double[] COS_COEFFICIENTS = {
+            1d / 24, -1d / 720, 1d / 40_320, -1d / 3_628_800,
+            1d / 479_001_600, -1d / 87_178_291_200d, 1d / 20_922_789_888_000d
+    };
+
+    @Override
+    public void apply(double[] m, double[] ra, double[] dec, int from, int to, double[] xy) {
+        var sinCos = new DoubleVector[2];
+        var upper = from + SPECIES.loopBound(to - from);
+        var i = from;
+        for (; i < upper; i += SPECIES.length()) {
+            sinCos(DoubleVector.fromArray(SPECIES, dec, i), sinCos);
+            var sinDec = sinCos[0];
+            var cosDec = sinCos[1];
+            sinCos(DoubleVector.fromArray(SPECIES, ra, i), sinCos);
+            project(m, cosDec.mul(sinCos[1]), cosDec.mul(sinCos[0]), sinDec, xy, 2 * i);
+        }
+        var scalarSinCos = new double[2];
+        for (; i < to; i += 1) {
+            sinCos(dec[i], scalarSinCos);
+            var sinDec = scalarSinCos[0];
+            var cosDec = scalarSinCos[1];
+            sinCos(ra[i], scalarSinCos);
+            ScalarProjectionKernel.project(m, cosDec * scalarSinCos[1], cosDec * scalarSinCos[0], sinDec, xy, 2 * i);
+        }
+    }
+
+    @Override
+    public void applyToUnitVectors(double[] m, double[] x, double[] y, double[] z, int from, int to, double[] xy) {
+        var upper = from + SPECIES.loopBound(to - from);
+        var i = from;
+        for (; i < upper; i += SPECIES.length()) {
+            project(m,
+                    DoubleVector.fromArray(SPECIES, x, i),
+                    DoubleVector.fromArray(SPECIES, y, i),
+                    DoubleVector.fromArray(SPECIES, z, i),
+                    xy, 2 * i);
+        }
+        ScalarProjectionKernel.INSTANCE.applyToUnitVectors(m, x, y, z, i, to, xy);
+    }
+
+    @Override
+    public void rotate(double[] m, double[] x, double[] y, double[] z, int from, int to,
+                       double[] mx, double[] my, double[] mz) {
+        var upper = from + SPECIES.loopBound(to - from);
+        var i = from;
+        for (; i < upper; i += SPECIES.length()) {
+            var xi = DoubleVector.fromArray(SPECIES, x, i);
+            var yi = DoubleVector.fromArray(SPECIES, y, i);
+            var zi = DoubleVector.fromArray(SPECIES, z, i);
+            xi.mul(m[0]).add(yi.mul(m[1])).add(zi.mul(m[2])).intoArray(mx, i);
+            xi.mul(m[3]).add(yi.mul(m[4])).add(zi.mul(m[5])).intoArray(my, i);
+            xi.mul(m[6]).add(yi.mul(m[7])).add(zi.mul(m[8])).intoArray(mz, i);
+        }
+        ScalarProjectionKernel.INSTANCE.rotate(m, x, y, z, i, to, mx, my, mz);
+    }
+
+    private static void project(double[] m, DoubleVector x, DoubleVector y, DoubleVector z, double[] xy, int index) {
+        var w = x.mul(m[6]).add(y.mul(m[7])).add(z.mul(m[8])).add(1d);
+        var d = DoubleVector.broadcast(SPECIES, 1d).div(w);
+        var u = x.mul(m[0]).add(y.mul(m[1])).add(z.mul(m[2]));
+        var v = x.mul(m[3]).add(y.mul(m[4])).add(z.mul(m[5]));
+        d.mul(u).intoArray(xy, index, X_INDICES, 0);
+        d.mul(v).intoArray(xy, index + 1, X_INDICES, 0);
+    }
+
+    // Stores the sine and cosine of the lanes of a in sinCos[0] and sinCos[1].
+    private static void sinCos(DoubleVector a, DoubleVector[] sinCos) {
+        var k = a.mul(TWO_OVER_PI).add(ROUNDING_CONSTANT).sub(ROUNDING_CONSTANT);
+        var r = a.sub(k.mul(PI_OVER_2_HI)).sub(k.mul(PI_OVER_2_LO));
+        var r2 = r.mul(r);
+
+        var s = DoubleVector.broadcast(SPECIES, SIN_COEFFICIENTS[SIN_COEFFICIENTS.length - 1]);
+        for (var j = SIN_COEFFICIENTS.length - 2; j >= 0; j -= 1)
+            s = s.mul(r2).add(SIN_COEFFICIENTS[j]);
+        s = r.add(r.mul(r2).mul(s));
+
+        var c = DoubleVector.broadcast(SPECIES, COS_COEFFICIENTS[COS_COEFFICIENTS.length - 1]);
+        for (var j = COS_COEFFICIENTS.length - 2; j >= 0; j -= 1)
+            c = c.mul(r2).add(COS_COEFFICIENTS[j]);
+        c = DoubleVector.broadcast(SPECIES, 1d).sub(r2.mul(0.5)).add(r2.mul(r2).mul(c));
+
+        // sin(r + qπ/2) and cos(r + qπ/2) are obtained by swapping and negating the values for r
+        var q = (LongVector) k.convert(D2L, 0);
+        var swap = q.and(1L).compare(NE, 0).cast(SPECIES);
+        var negateSin = q.and(2L).compare(NE, 0).cast(SPECIES);
+        var negateCos = q.add(1L).and(2L).compare(NE, 0).cast(SPECIES);
+        var sin = s.blend(c, swap);
+        var cos = c.blend(s, swap);
+        sinCos[0] = sin.blend(sin.neg(), negateSin);
+        sinCos[1] = cos.blend(cos.neg(), negateCos);
+    }
+
+    private static void sinCos(double a, double[] sinCos) {
+        var k = (a * TWO_OVER_PI + ROUNDING_CONSTANT) - ROUNDING_CONSTANT;
+        var r = (a - k * PI_OVER_2_HI) - k * PI_OVER_2_LO;
+        var r2 = r * r;
+
+        var s = SIN_COEFFICIENTS[SIN_COEFFICIENTS.length - 1];
+        for (var j = SIN_COEFFICIENTS.length - 2; j >= 0; j -= 1)
+            s = s * r2 + SIN_COEFFICIENTS[j];
+        s = r + r * r2 * s;
+
+        var c = COS_COEFFICIENTS[COS_COEFFICIENTS.length - 1];
+        for (var j = COS_COEFFICIENTS.length - 2; j >= 0; j -= 1)
+            c = c * r2 + COS_COEFFICIENTS[j];
+        c = (1d - r2 * 0.5) + r2 * r2 * c;
+
+        var q = (long) k;
+        var sin = (q & 1) != 0 ? c : s;
+        var cos = (q & 1) != 0 ? s : c;
+        sinCos[0] = (q & 2) != 0 ? -sin : sin;
+        sinCos[1] = ((q + 1) & 2) != 0 ? -cos : cos;
+    }
+}
@@ -2,36 +2,26 @@ package rigel;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.time.ZonedDateTime;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.imageio.ImageIO;
 
-import javafx.application.Application;
-import javafx.application.Platform;
-import javafx.embed.swing.SwingFXUtils;
-import javafx.scene.canvas.Canvas;
-import javafx.scene.image.WritableImage;
 import javafx.scene.transform.Transform;
-import javafx.stage.Stage;
 import rigel.astronomy.ObservedSky;
 import rigel.astronomy.catalogs.HygDatabaseLoader;
 import rigel.astronomy.catalogs.StarCatalogue;
 import rigel.coordinates.GeographicCoordinates;
 import rigel.coordinates.HorizontalCoordinates;
 import rigel.coordinates.StereographicProjection;
-import rigel.gui.SkyCanvasPainter;
+import rigel.gui.SkyRasterizer;
 
-public final class DrawSky extends Application {
-  public static void main(String[] args) { launch(args); }
-
-  private InputStream resourceStream(String resourceName) {
-    return getClass().getResourceAsStream(resourceName);
-  }
-
-  @Override
-  public void start(Stage primaryStage) throws Exception {
-    try (InputStream hs = resourceStream("/hygdata_v3.csv")){
+// Draws the sky with a SkyRasterizer, so that neither a JavaFX scene nor the JavaFX toolkit is needed.
+public final class DrawSky {
+  public static void main(String[] args) throws IOException {
+    try (InputStream hs = DrawSky.class.getResourceAsStream("/hygdata_v3.csv")){
       StarCatalogue catalogue = new StarCatalogue.Builder()
 	.loadFrom(hs, HygDatabaseLoader.INSTANCE)
 	.build();
@@ -47,22 +37,20 @@ public final class DrawSky extends Application {
       ObservedSky sky =
 	new ObservedSky(when, where, projection, catalogue);
 
-      Canvas canvas =
-	new Canvas(800, 600);
       Transform planeToCanvas =
 	Transform.affine(1300, 0, 0, -1300, 400, 300);
-      SkyCanvasPainter painter =
-	new SkyCanvasPainter(canvas);
-
-      painter.clear();
-      painter.drawStars(sky, projection, planeToCanvas);
-
-      WritableImage fxImage =
-	canvas.snapshot(null, null);
-      BufferedImage swingImage =
-	SwingFXUtils.fromFXImage(fxImage, null);
-      ImageIO.write(swingImage, "png", new File("sky.png"));
+      SkyRasterizer rasterizer =
+	new SkyRasterizer(800, 600, ForkJoinPool.commonPool());
+
+      rasterizer.clear();
+      rasterizer.drawStars(sky, projection, planeToCanvas);
+
+      int[] pixels =
+	rasterizer.render();
+      BufferedImage image =
+	new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB);
+      image.setRGB(0, 0, 800, 600, pixels, 0, 800);
+      ImageIO.write(image, "png", new File("sky.png"));
     }
-    Platform.exit();
   }
 }
@@ -1,7 +1,10 @@
 package rigel;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.geometry.Orientation;
 import javafx.scene.Node;
 import javafx.scene.Scene;
@@ -23,6 +26,7 @@ import rigel.gui.*;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
@@ -41,26 +45,53 @@ public final class Main extends Application {
     private static final HorizontalCoordinates INITIAL_OBSERVATION_CENTER =
             HorizontalCoordinates.ofDeg(180.000000000001, 15);
     private static final double INITIAL_FIELD_OF_VIEW = 100;
+    private static final Path CATALOGUE_CACHE_DIRECTORY =
+            Path.of(System.getProperty("user.home"), ".cache", "rigel");
 
     // Font Awesome glyphs (see https://fontawesome.com/)
     private static final String FA_PLAY = "\uf04b";
     private static final String FA_PAUSE = "\uf04c";
     private static final String FA_UNDO = "\uf0e2";
 
-    private final StarCatalogue starCatalogue;
+    // Filled by a background thread, progressively and brightest stars first when the catalogue is
+    // loaded from its snapshot (see StarCatalogue.Builder.withProgressListener)
+    private final ObjectProperty<StarCatalogue> starCatalogue =
+            new SimpleObjectProperty<>(new StarCatalogue(List.of(), List.of()));
 
     public static void main(String[] args) { launch(args); }
 
-    public Main() throws IOException {
+    @Override
+    public void init() {
+        var loader = new Thread(this::loadStarCatalogue, "star-catalogue-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void loadStarCatalogue() {
         try (var hygStream = getClass().getResourceAsStream("/hygdata_v3.csv");
              var asterismStream = getClass().getResourceAsStream("/asterisms.txt")) {
-            this.starCatalogue = new StarCatalogue.Builder()
+            var catalogue = new StarCatalogue.Builder()
+                    .withSnapshotCache(CATALOGUE_CACHE_DIRECTORY)
+                    .withProgressListener(c -> Platform.runLater(() -> starCatalogue.set(c)))
                     .loadFrom(hygStream, HygDatabaseLoader.INSTANCE)
                     .loadFrom(asterismStream, AsterismLoader.INSTANCE)
                     .build();
+            Platform.runLater(() -> starCatalogue.set(catalogue));
+        } catch (IOException | RuntimeException e) {
+            // Exceptions thrown on this thread would go unnoticed, so they are reported on the
+            // JavaFX thread, after which the application exits, having no stars to show
+            Platform.runLater(() -> reportCatalogueLoadingFailure(e));
         }
     }
 
+    private static void reportCatalogueLoadingFailure(Exception e) {
+        var alert = new Alert(Alert.AlertType.ERROR);
+        alert.setHeaderText("Unable to load the star catalogue");
+        alert.setContentText(e.toString());
+        alert.showAndWait();
+        Platform.exit();
+    }
+
     @Override
     public void start(Stage primaryStage) {
         var dateTimeBean = new DateTimeBean();
@@ -106,7 +137,9 @@ public final class Main extends Application {
                 new Separator(Orientation.VERTICAL),
                 createDateTimePane(skyCanvasManager.dateTimeBean(), timeAnimator),
                 new Separator(Orientation.VERTICAL),
-                createTimeControlPane(skyCanvasManager.dateTimeBean(), timeAnimator));
+                createTimeControlPane(skyCanvasManager.dateTimeBean(), timeAnimator),
+                new Separator(Orientation.VERTICAL),
+                createRenderingPane(skyCanvasManager));
         controlPane.setStyle("-fx-spacing: 4; -fx-padding: 4;");
         return controlPane;
     }
@@ -210,6 +243,24 @@ public final class Main extends Application {
         }
     }
 
+    private Pane createRenderingPane(SkyCanvasManager skyCanvasManager) {
+        var renderingLabel = new Label("Rendu :");
+        var backendBox = new ChoiceBox<SkyCanvasPainter.Backend>();
+        backendBox.setItems(observableList(List.of(SkyCanvasPainter.Backend.values())));
+        backendBox.valueProperty().bindBidirectional(skyCanvasManager.backendProperty());
+
+        // Only used by the GRAPHICS_CONTEXT backend
+        var starRenderingBox = new ChoiceBox<SkyCanvasPainter.StarRendering>();
+        starRenderingBox.setItems(observableList(List.of(SkyCanvasPainter.StarRendering.values())));
+        starRenderingBox.valueProperty().bindBidirectional(skyCanvasManager.starRenderingProperty());
+        starRenderingBox.disableProperty().bind(
+                skyCanvasManager.backendProperty().isEqualTo(SkyCanvasPainter.Backend.RASTER));
+
+        var pane = new HBox(renderingLabel, backendBox, starRenderingBox);
+        pane.setStyle("-fx-spacing: inherit; -fx-alignment: baseline-left;");
+        return pane;
+    }
+
     private Pane createInfoPane(SkyCanvasManager skyCanvasManager) {
         var fovText = new Text();
         fovText.textProperty().bind(
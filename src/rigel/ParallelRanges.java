@@ -0,0 +1,56 @@
+package rigel;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public final class ParallelRanges {
+    // Ranges of at most this number of elements are handled sequentially
+    private static final int THRESHOLD = 1 << 14;
+
+    private ParallelRanges() {}
+
+    public interface RangeAction {
+        void apply(int from, int to);
+    }
+
+    // Applies the action to ranges covering [0, size[, in parallel in the given pool unless it is
+    // null or the size is small. Ranges are disjoint, so an action writing only to the elements of
+    // its range gives the same results as a sequential application.
+    public static void forEachRange(int size, ForkJoinPool pool, RangeAction action) {
+        forEachRange(size, THRESHOLD, pool, action);
+    }
+
+    // Same as above, but ranges of at most threshold elements are handled sequentially, for
+    // elements which are expensive to handle (e.g. bands of rows of an image).
+    public static void forEachRange(int size, int threshold, ForkJoinPool pool, RangeAction action) {
+        if (pool == null || size <= threshold)
+            action.apply(0, size);
+        else
+            pool.invoke(new RangeTask(action, threshold, 0, size));
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RangeAction action;
+        private final int threshold;
+        private final int from, to;
+
+        RangeTask(RangeAction action, int threshold, int from, int to) {
+            this.action = action;
+            this.threshold = threshold;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                action.apply(from, to);
+            } else {
+                var middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(action, threshold, from, middle), new RangeTask(action, threshold, middle, to));
+            }
+        }
+    }
+}
@@ -1,14 +1,14 @@
 package rigel.astronomy;
 
-import static java.time.temporal.ChronoUnit.MILLIS;
-
-import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.Month;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 
+// Instants are represented by Julian dates (days since January 1 4713 BC, 12h UTC) in the
+// computations, and only converted from ZonedDateTime at their boundary (see julianDate).
 public enum Epoch {
     // January 1 2000, 12h UTC
     J2000(ZonedDateTime.of(
@@ -22,20 +22,42 @@ public enum Epoch {
             LocalTime.MIDNIGHT,
             ZoneOffset.UTC));
 
-    private static final double DAYS_PER_MILLIS = 1e-3 / Duration.ofDays(1).getSeconds();
-    private static final double JULIAN_CENTURIES_PER_MILLIS = 1e-3 / Duration.ofDays(36525).getSeconds();
+    // The Julian date of January 1 1970, 0h UTC
+    private static final double UNIX_EPOCH_JULIAN_DATE = 2_440_587.5;
+    private static final double SECONDS_PER_DAY = 86_400;
+    private static final double DAYS_PER_JULIAN_CENTURY = 36_525;
 
-    private final ZonedDateTime dateTime;
+    private final double julianDate;
 
     Epoch(ZonedDateTime dateTime) {
-        this.dateTime = dateTime;
+        this.julianDate = julianDate(dateTime);
+    }
+
+    public static double julianDate(ZonedDateTime when) {
+        return julianDate(when.toInstant());
+    }
+
+    public static double julianDate(Instant when) {
+        return UNIX_EPOCH_JULIAN_DATE + (when.getEpochSecond() + when.getNano() * 1e-9) / SECONDS_PER_DAY;
+    }
+
+    public double julianDate() {
+        return julianDate;
     }
 
     public double daysUntil(ZonedDateTime when) {
-        return dateTime.until(when, MILLIS) * DAYS_PER_MILLIS;
+        return daysUntil(julianDate(when));
+    }
+
+    public double daysUntil(double julianDate) {
+        return julianDate - this.julianDate;
     }
 
     public double julianCenturiesUntil(ZonedDateTime when) {
-        return dateTime.until(when, MILLIS) * JULIAN_CENTURIES_PER_MILLIS;
+        return julianCenturiesUntil(julianDate(when));
+    }
+
+    public double julianCenturiesUntil(double julianDate) {
+        return (julianDate - this.julianDate) / DAYS_PER_JULIAN_CENTURY;
     }
 }
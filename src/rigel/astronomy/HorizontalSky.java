@@ -0,0 +1,165 @@
+package rigel.astronomy;
+
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import rigel.ParallelRanges;
+import rigel.astronomy.catalogs.StarCatalogue;
+import rigel.astronomy.models.*;
+import rigel.astronomy.objects.*;
+import rigel.coordinates.*;
+
+// The first stage of an observed sky: the objects visible at a given time and location, with
+// their horizontal positions stored as unit vectors (see EquatorialToHorizontalConversion). It
+// does not depend on the viewing direction, so it can be projected again (see ObservedSky) when
+// the view is panned or zoomed.
+public final class HorizontalSky {
+    enum Kind {SUN, PLANET, MOON, STAR}
+
+    private final double julianDate;
+    private final GeographicCoordinates where;
+    private final Sun sun;
+    private final Moon moon;
+    private final List<Planet> planets;
+    private final StarCatalogue starCatalogue;
+
+    private final Map<Kind, UnitVectors> positions;
+
+    public HorizontalSky(ZonedDateTime when, GeographicCoordinates where, StarCatalogue starCatalogue) {
+        this(Epoch.julianDate(when), where, starCatalogue, null);
+    }
+
+    public HorizontalSky(ZonedDateTime when, GeographicCoordinates where, StarCatalogue starCatalogue, ForkJoinPool pool) {
+        this(Epoch.julianDate(when), where, starCatalogue, pool);
+    }
+
+    // Stars are converted in parallel in the given pool, unless it is null.
+    public HorizontalSky(double julianDate, GeographicCoordinates where, StarCatalogue starCatalogue, ForkJoinPool pool) {
+        var ephemeris = new EphemerisContext(julianDate);
+        var sun = ephemeris.sun();
+        var moon = ephemeris.moon();
+        var planets = ephemeris.planets();
+
+        var equToHor = new EquatorialToHorizontalConversion(julianDate, where);
+        var starPositions = starCatalogue.positionsAt(julianDate);
+        var stars = new UnitVectors(starPositions.size());
+        starPositions.toHorizontal(equToHor, stars.x, stars.y, stars.z, pool);
+        var positions = new EnumMap<>(Map.of(
+                Kind.SUN, computePositions(equToHor, List.of(sun)),
+                Kind.MOON, computePositions(equToHor, List.of(moon)),
+                Kind.PLANET, computePositions(equToHor, planets),
+                Kind.STAR, stars));
+
+        this.julianDate = julianDate;
+        this.where = where;
+        this.sun = sun;
+        this.moon = moon;
+        this.planets = unmodifiableList(planets);
+        this.starCatalogue = starCatalogue;
+        this.positions = unmodifiableMap(positions);
+    }
+
+    private static UnitVectors computePositions(EquatorialToHorizontalConversion conversion,
+                                                List<? extends CelestialObject> objects) {
+        var equatorial = new UnitVectors(objects.size());
+        for (var i = 0; i < objects.size(); i += 1) {
+            var equatorialPos = objects.get(i).equatorialPos();
+            var cosDec = cos(equatorialPos.dec());
+            equatorial.x[i] = cosDec * cos(equatorialPos.ra());
+            equatorial.y[i] = cosDec * sin(equatorialPos.ra());
+            equatorial.z[i] = sin(equatorialPos.dec());
+        }
+        var horizontal = new UnitVectors(objects.size());
+        conversion.applyToUnitVectors(equatorial.x, equatorial.y, equatorial.z, 0, objects.size(),
+                horizontal.x, horizontal.y, horizontal.z);
+        return horizontal;
+    }
+
+    public double julianDate() {
+        return julianDate;
+    }
+
+    public GeographicCoordinates where() {
+        return where;
+    }
+
+    public Sun sun() {
+        return sun;
+    }
+
+    public Moon moon() {
+        return moon;
+    }
+
+    public List<Planet> planets() {
+        return planets;
+    }
+
+    public StarCatalogue starCatalogue() {
+        return starCatalogue;
+    }
+
+    // Stores the projection of the objects of the given kind in a new array, the one of object i
+    // being in xy[2i] and xy[2i + 1]. Stars are projected in parallel in the given pool, unless it
+    // is null.
+    double[] project(Kind kind, StereographicProjection projection, ForkJoinPool pool) {
+        var xy = new double[2 * size(kind)];
+        project(kind, projection, pool, xy);
+        return xy;
+    }
+
+    // Same as project(kind, projection, pool), but stores the projections in xy.
+    void project(Kind kind, StereographicProjection projection, ForkJoinPool pool, double[] xy) {
+        var vectors = positions.get(kind);
+        ParallelRanges.forEachRange(vectors.x.length, pool,
+                (from, to) -> projection.applyToUnitVectors(vectors.x, vectors.y, vectors.z, from, to, xy));
+    }
+
+    int size(Kind kind) {
+        return positions.get(kind).x.length;
+    }
+
+    // Returns the indices, in increasing order, of the objects of the given kind whose projection
+    // may lie in the given region (see VisibleRegion.mayContainUnitVector).
+    int[] indicesMaybeIn(Kind kind, VisibleRegion region) {
+        var vectors = positions.get(kind);
+        var indices = new int[vectors.x.length];
+        var count = 0;
+        for (var i = 0; i < indices.length; i += 1) {
+            if (region.mayContainUnitVector(vectors.x[i], vectors.y[i], vectors.z[i]))
+                indices[count++] = i;
+        }
+        return Arrays.copyOf(indices, count);
+    }
+
+    // Projects the objects of the given kind whose indices are in indices[from, to[, and stores the
+    // projection of object i in xy[2i] and xy[2i + 1]. Runs of consecutive indices are projected
+    // together.
+    void project(Kind kind, StereographicProjection projection, int[] indices, int from, int to, double[] xy) {
+        var vectors = positions.get(kind);
+        var i = from;
+        while (i < to) {
+            var runEnd = i + 1;
+            while (runEnd < to && indices[runEnd] == indices[runEnd - 1] + 1)
+                runEnd += 1;
+            projection.applyToUnitVectors(vectors.x, vectors.y, vectors.z, indices[i], indices[runEnd - 1] + 1, xy);
+            i = runEnd;
+        }
+    }
+
+    private static final class UnitVectors {
+        private final double[] x, y, z;
+
+        UnitVectors(int size) {
+            this.x = new double[size];
+            this.y = new double[size];
+            this.z = new double[size];
+        }
+    }
+}
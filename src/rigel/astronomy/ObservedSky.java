@@ -1,65 +1,141 @@
 package rigel.astronomy;
 
-import static java.lang.Math.abs;
-import static java.lang.Math.hypot;
 import static java.util.Collections.unmodifiableList;
 import static java.util.Collections.unmodifiableMap;
 
+import java.nio.DoubleBuffer;
 import java.time.ZonedDateTime;
 import java.util.*;
-import java.util.function.Function;
+import java.util.concurrent.ForkJoinPool;
 
+import rigel.ParallelRanges;
+import rigel.astronomy.HorizontalSky.Kind;
 import rigel.astronomy.catalogs.StarCatalogue;
-import rigel.astronomy.models.*;
 import rigel.astronomy.objects.*;
 import rigel.coordinates.*;
 
+// The second stage of an observed sky: the projection of a horizontal sky (see HorizontalSky),
+// which is cheap enough to be recomputed whenever the view changes.
 public final class ObservedSky {
-    private enum Kind {SUN, PLANET, MOON, STAR}
-
     private final Sun sun;
     private final Moon moon;
     private final List<Planet> planets;
     private final StarCatalogue starCatalogue;
 
     private final Map<Kind, double[]> positions;
+    // The indices, in increasing order, of the objects which are visible
+    private final Map<Kind, int[]> visibleIndices;
+
+    // Built lazily, by grid()
+    private PlaneGrid grid;
+    private Kind[] gridKinds;
+    private int[] gridIndices;
 
     public ObservedSky(ZonedDateTime when, GeographicCoordinates where, StereographicProjection projection, StarCatalogue starCatalogue) {
-        var daysSinceEpoch = Epoch.J2010.daysUntil(when);
-        var eclToEqu = new EclipticToEquatorialConversion(when);
-
-        var sun = SunModel.SUN.at(daysSinceEpoch, eclToEqu);
-        var moon = MoonModel.MOON.at(daysSinceEpoch, eclToEqu);
-        var planets = new ArrayList<Planet>();
-        for (PlanetModel planetModel : PlanetModel.ALL) {
-            if (planetModel != PlanetModel.EARTH)
-                planets.add(planetModel.at(daysSinceEpoch, eclToEqu));
+        this(when, where, projection, starCatalogue, null);
+    }
+
+    // Stars are converted and projected in parallel in the given pool, unless it is null.
+    public ObservedSky(ZonedDateTime when, GeographicCoordinates where, StereographicProjection projection, StarCatalogue starCatalogue,
+                       ForkJoinPool pool) {
+        this(Epoch.julianDate(when), where, projection, starCatalogue, pool);
+    }
+
+    // Stars are converted and projected in parallel in the given pool, unless it is null.
+    public ObservedSky(double julianDate, GeographicCoordinates where, StereographicProjection projection, StarCatalogue starCatalogue,
+                       ForkJoinPool pool) {
+        this(new HorizontalSky(julianDate, where, starCatalogue, pool), projection, pool);
+    }
+
+    public ObservedSky(HorizontalSky horizontalSky, StereographicProjection projection) {
+        this(horizontalSky, projection, null, null);
+    }
+
+    // Stars are projected in parallel in the given pool, unless it is null.
+    public ObservedSky(HorizontalSky horizontalSky, StereographicProjection projection, ForkJoinPool pool) {
+        this(horizontalSky, projection, null, pool);
+    }
+
+    // Only the objects which lie in the given region of the plane of the projection are visible,
+    // unless it is null. Stars which certainly lie outside of it are not projected, and their
+    // positions are NaN, except for stars of asterisms whose lines may cross the region.
+    public ObservedSky(HorizontalSky horizontalSky, StereographicProjection projection, VisibleRegion region,
+                       ForkJoinPool pool) {
+        this(horizontalSky, projection, region, pool, null);
+    }
+
+    // Same as above, but stores the star positions in the given array if it is not null and its
+    // size is twice the number of stars, so that callers can reuse the array of a sky they no
+    // longer use. The array must then not be modified while this sky is in use.
+    public ObservedSky(HorizontalSky horizontalSky, StereographicProjection projection, VisibleRegion region,
+                       ForkJoinPool pool, double[] starPositionsBuffer) {
+        var starCatalogue = horizontalSky.starCatalogue();
+        var starCount = horizontalSky.size(Kind.STAR);
+        var starPositions = starPositionsBuffer != null && starPositionsBuffer.length == 2 * starCount
+                ? starPositionsBuffer
+                : new double[2 * starCount];
+        var positions = new EnumMap<Kind, double[]>(Kind.class);
+        var visibleIndices = new EnumMap<Kind, int[]>(Kind.class);
+        for (var kind : Kind.values()) {
+            if (kind != Kind.STAR)
+                positions.put(kind, horizontalSky.project(kind, projection, pool));
         }
+        if (region != null) {
+            var candidates = horizontalSky.indicesMaybeIn(Kind.STAR, region);
+            Arrays.fill(starPositions, Double.NaN);
+            ParallelRanges.forEachRange(candidates.length, pool,
+                    (from, to) -> horizontalSky.project(Kind.STAR, projection, candidates, from, to, starPositions));
+            var asterismStars = asterismStarIndices(starCatalogue);
+            horizontalSky.project(Kind.STAR, projection, asterismStars, 0, asterismStars.length, starPositions);
+            positions.put(Kind.STAR, starPositions);
 
-        var combinedProjection = new EquatorialToHorizontalConversion(when, where).andThen(projection);
-        var positions = new EnumMap<>(Map.of(
-                Kind.SUN, computePositions(combinedProjection, List.of(sun)),
-                Kind.MOON, computePositions(combinedProjection, List.of(moon)),
-                Kind.PLANET, computePositions(combinedProjection, planets),
-                Kind.STAR, computePositions(combinedProjection, starCatalogue.stars())));
+            for (var kind : Kind.values()) {
+                var indices = kind == Kind.STAR ? candidates : allIndices(horizontalSky.size(kind));
+                visibleIndices.put(kind, indicesIn(region, positions.get(kind), indices));
+            }
+        } else {
+            horizontalSky.project(Kind.STAR, projection, pool, starPositions);
+            positions.put(Kind.STAR, starPositions);
+            for (var kind : Kind.values())
+                visibleIndices.put(kind, allIndices(horizontalSky.size(kind)));
+        }
 
-        this.sun = sun;
-        this.moon = moon;
-        this.planets = unmodifiableList(planets);
+        this.sun = horizontalSky.sun();
+        this.moon = horizontalSky.moon();
+        this.planets = horizontalSky.planets();
         this.starCatalogue = starCatalogue;
         this.positions = unmodifiableMap(positions);
+        this.visibleIndices = unmodifiableMap(visibleIndices);
     }
 
-    private static double[] computePositions(Function<EquatorialCoordinates, CartesianCoordinates> projection,
-                                             List<? extends CelestialObject> objects) {
-        var positions = new double[2 * objects.size()];
-        var i = 0;
-        for (var object : objects) {
-            var position = projection.apply(object.equatorialPos());
-            positions[i++] = position.x();
-            positions[i++] = position.y();
+    private static int[] asterismStarIndices(StarCatalogue starCatalogue) {
+        var count = 0;
+        for (var a = 0; a < starCatalogue.asterismCount(); a += 1)
+            count += starCatalogue.asterismSize(a);
+        var indices = new int[count];
+        var j = 0;
+        for (var a = 0; a < starCatalogue.asterismCount(); a += 1) {
+            for (var i = 0; i < starCatalogue.asterismSize(a); i += 1)
+                indices[j++] = starCatalogue.asterismStarIndex(a, i);
         }
-        return positions;
+        return indices;
+    }
+
+    private static int[] allIndices(int size) {
+        var indices = new int[size];
+        for (var i = 0; i < size; i += 1)
+            indices[i] = i;
+        return indices;
+    }
+
+    private static int[] indicesIn(VisibleRegion region, double[] positions, int[] indices) {
+        var inside = new int[indices.length];
+        var count = 0;
+        for (var index : indices) {
+            if (region.contains(positions[2 * index], positions[2 * index + 1]))
+                inside[count++] = index;
+        }
+        return Arrays.copyOf(inside, count);
     }
 
     public Sun sun() {
@@ -78,6 +154,46 @@ public final class ObservedSky {
         return starCatalogue.stars();
     }
 
+    public int starCount() {
+        return starCatalogue.size();
+    }
+
+    public int visibleStarCount() {
+        return visibleIndices.get(Kind.STAR).length;
+    }
+
+    public int visibleStarIndex(int i) {
+        return visibleIndices.get(Kind.STAR)[i];
+    }
+
+    public int visiblePlanetCount() {
+        return visibleIndices.get(Kind.PLANET).length;
+    }
+
+    public int visiblePlanetIndex(int i) {
+        return visibleIndices.get(Kind.PLANET)[i];
+    }
+
+    public double starMagnitude(int index) {
+        return starCatalogue.magnitude(index);
+    }
+
+    public int starColorTemperature(int index) {
+        return starCatalogue.colorTemperature(index);
+    }
+
+    public int asterismCount() {
+        return starCatalogue.asterismCount();
+    }
+
+    public int asterismSize(int asterismIndex) {
+        return starCatalogue.asterismSize(asterismIndex);
+    }
+
+    public int asterismStarIndex(int asterismIndex, int i) {
+        return starCatalogue.asterismStarIndex(asterismIndex, i);
+    }
+
     public Set<Asterism> asterisms() {
         return starCatalogue.asterisms();
     }
@@ -106,28 +222,88 @@ public final class ObservedSky {
         return Arrays.copyOf(pos, pos.length);
     }
 
+    // Same as planetPositions(), but stores the positions in xy if it is large enough, and
+    // otherwise in a new array. Returns the array used, so that it can be reused by the next call.
+    public double[] planetPositions(double[] xy) {
+        return copyInto(positions.get(Kind.PLANET), xy);
+    }
+
+    // Same as starPositions(), but stores the positions in xy if it is large enough, and otherwise
+    // in a new array. Returns the array used, so that it can be reused by the next call.
+    public double[] starPositions(double[] xy) {
+        return copyInto(positions.get(Kind.STAR), xy);
+    }
+
+    // Returns a read-only view of the planet positions, without copying them.
+    public DoubleBuffer planetPositionsBuffer() {
+        return DoubleBuffer.wrap(positions.get(Kind.PLANET)).asReadOnlyBuffer();
+    }
+
+    // Returns a read-only view of the star positions, without copying them.
+    public DoubleBuffer starPositionsBuffer() {
+        return DoubleBuffer.wrap(positions.get(Kind.STAR)).asReadOnlyBuffer();
+    }
+
+    private static double[] copyInto(double[] positions, double[] xy) {
+        if (xy == null || xy.length < positions.length)
+            xy = new double[positions.length];
+        System.arraycopy(positions, 0, xy, 0, positions.length);
+        return xy;
+    }
+
     public Optional<CelestialObject> objectClosestTo(double pX, double pY, double maxDistance) {
-        var closestDistance = maxDistance;
-        var closestKind = (Kind) null;
-        var closestIndex = -1;
-
-        for (var entry : positions.entrySet()) {
-            var kind = entry.getKey();
-            var positions = entry.getValue();
-            for (int i = 0; i < positions.length; i += 2) {
-                var dX = abs(pX - positions[i]);
-                var dY = abs(pY - positions[i + 1]);
-                if (dX < closestDistance && dY < closestDistance) {
-                    var d = hypot(dX, dY);
-                    if (d < closestDistance) {
-                        closestKind = kind;
-                        closestIndex = i >> 1;
-                        closestDistance = d;
-                    }
+        var point = grid().closest(pX, pY, maxDistance);
+        return point >= 0 ? Optional.of(gridObject(point)) : Optional.empty();
+    }
+
+    // Returns the visible objects whose distance to (pX, pY) is strictly smaller than radius, by
+    // increasing distance.
+    public List<CelestialObject> objectsWithin(double pX, double pY, double radius) {
+        return gridObjects(grid().within(pX, pY, radius));
+    }
+
+    // Returns the (at most) count visible objects closest to (pX, pY), by increasing distance.
+    public List<CelestialObject> objectsClosestTo(double pX, double pY, int count) {
+        return gridObjects(grid().nearest(pX, pY, count));
+    }
+
+    // The grid indexes the visible objects in the order of Kind, then of their index, so that ties
+    // are broken as by a linear scan.
+    private synchronized PlaneGrid grid() {
+        if (grid == null) {
+            var count = 0;
+            for (var indices : visibleIndices.values())
+                count += indices.length;
+            var gridKinds = new Kind[count];
+            var gridIndices = new int[count];
+            var gridPositions = new double[2 * count];
+            var point = 0;
+            for (var entry : visibleIndices.entrySet()) {
+                var positions = this.positions.get(entry.getKey());
+                for (var index : entry.getValue()) {
+                    gridKinds[point] = entry.getKey();
+                    gridIndices[point] = index;
+                    gridPositions[2 * point] = positions[2 * index];
+                    gridPositions[2 * point + 1] = positions[2 * index + 1];
+                    point += 1;
                 }
             }
+            this.gridKinds = gridKinds;
+            this.gridIndices = gridIndices;
+            this.grid = new PlaneGrid(gridPositions);
         }
-        return closestKind != null ? Optional.of(object(closestKind, closestIndex)) : Optional.empty();
+        return grid;
+    }
+
+    private synchronized CelestialObject gridObject(int point) {
+        return object(gridKinds[point], gridIndices[point]);
+    }
+
+    private List<CelestialObject> gridObjects(int[] points) {
+        var objects = new ArrayList<CelestialObject>(points.length);
+        for (var point : points)
+            objects.add(gridObject(point));
+        return unmodifiableList(objects);
     }
 
     private CelestialObject object(Kind kind, int index) {
@@ -139,7 +315,7 @@ public final class ObservedSky {
             case PLANET:
                 return planets().get(index);
             case STAR:
-                return stars().get(index);
+                return starCatalogue.star(index);
             default:
                 throw new Error();
         }
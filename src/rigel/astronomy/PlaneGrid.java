@@ -0,0 +1,184 @@
+package rigel.astronomy;
+
+import static java.lang.Math.*;
+
+import java.util.Arrays;
+
+// A uniform grid over points of the plane, identified by their index, for nearest-point and range
+// queries. Cells hold about CELL_SIZE_TARGET points on average. Points further than OUTLIER_BOUND
+// from the origin are stored in the border cells, so that they do not stretch the grid; points
+// whose coordinates are not finite are ignored.
+final class PlaneGrid {
+    private static final double CELL_SIZE_TARGET = 2;
+    private static final double OUTLIER_BOUND = 4;
+
+    private final double[] xy;
+    private final double minX, minY, cellSize;
+    private final int columns, rows;
+    // The points of cell (column, row) are cellPoints[cellStarts[c]..cellStarts[c + 1][, where
+    // c = row * columns + column, in increasing order
+    private final int[] cellStarts, cellPoints;
+    // The bounding box of all the points, including outliers
+    private final double allMinX, allMinY, allMaxX, allMaxY;
+
+    // The coordinates of point i are xy[2i] and xy[2i + 1].
+    PlaneGrid(double[] xy) {
+        var count = xy.length / 2;
+        double minX = OUTLIER_BOUND, minY = OUTLIER_BOUND, maxX = -OUTLIER_BOUND, maxY = -OUTLIER_BOUND;
+        double allMinX = Double.POSITIVE_INFINITY, allMinY = Double.POSITIVE_INFINITY;
+        double allMaxX = Double.NEGATIVE_INFINITY, allMaxY = Double.NEGATIVE_INFINITY;
+        var finiteCount = 0;
+        for (var i = 0; i < count; i += 1) {
+            var x = xy[2 * i];
+            var y = xy[2 * i + 1];
+            if (!Double.isFinite(x) || !Double.isFinite(y))
+                continue;
+            finiteCount += 1;
+            allMinX = min(allMinX, x);
+            allMinY = min(allMinY, y);
+            allMaxX = max(allMaxX, x);
+            allMaxY = max(allMaxY, y);
+            if (abs(x) <= OUTLIER_BOUND && abs(y) <= OUTLIER_BOUND) {
+                minX = min(minX, x);
+                minY = min(minY, y);
+                maxX = max(maxX, x);
+                maxY = max(maxY, y);
+            }
+        }
+        if (minX > maxX) {
+            minX = maxX = 0;
+            minY = maxY = 0;
+        }
+
+        var width = maxX - minX;
+        var height = maxY - minY;
+        var cellSize = sqrt(width * height * CELL_SIZE_TARGET / max(finiteCount, 1));
+        if (!(cellSize > 0))
+            cellSize = max(max(width, height) * CELL_SIZE_TARGET / max(finiteCount, 1), 1e-9);
+        var columns = (int) min(ceil(width / cellSize), 1 << 12) + 1;
+        var rows = (int) min(ceil(height / cellSize), 1 << 12) + 1;
+
+        var cellStarts = new int[columns * rows + 1];
+        var pointCells = new int[count];
+        for (var i = 0; i < count; i += 1) {
+            var x = xy[2 * i];
+            var y = xy[2 * i + 1];
+            if (!Double.isFinite(x) || !Double.isFinite(y)) {
+                pointCells[i] = -1;
+            } else {
+                pointCells[i] = clamp((y - minY) / cellSize, rows) * columns + clamp((x - minX) / cellSize, columns);
+                cellStarts[pointCells[i] + 1] += 1;
+            }
+        }
+        for (var c = 0; c < columns * rows; c += 1)
+            cellStarts[c + 1] += cellStarts[c];
+        var cellPoints = new int[finiteCount];
+        var next = Arrays.copyOf(cellStarts, columns * rows);
+        for (var i = 0; i < count; i += 1) {
+            if (pointCells[i] >= 0)
+                cellPoints[next[pointCells[i]]++] = i;
+        }
+
+        this.xy = xy;
+        this.minX = minX;
+        this.minY = minY;
+        this.cellSize = cellSize;
+        this.columns = columns;
+        this.rows = rows;
+        this.cellStarts = cellStarts;
+        this.cellPoints = cellPoints;
+        this.allMinX = allMinX;
+        this.allMinY = allMinY;
+        this.allMaxX = allMaxX;
+        this.allMaxY = allMaxY;
+    }
+
+    private static int clamp(double cell, int size) {
+        return (int) max(0, min(floor(cell), size - 1));
+    }
+
+    // Returns the point closest to (x, y) whose distance is strictly smaller than maxDistance, the
+    // one with the smallest index in case of ties, or -1 if there is none.
+    int closest(double x, double y, double maxDistance) {
+        var closest = -1;
+        var closestDistance = maxDistance;
+        var column0 = clamp((x - maxDistance - minX) / cellSize, columns);
+        var column1 = clamp((x + maxDistance - minX) / cellSize, columns);
+        var row0 = clamp((y - maxDistance - minY) / cellSize, rows);
+        var row1 = clamp((y + maxDistance - minY) / cellSize, rows);
+        for (var row = row0; row <= row1; row += 1) {
+            for (var column = column0; column <= column1; column += 1) {
+                var c = row * columns + column;
+                for (var j = cellStarts[c]; j < cellStarts[c + 1]; j += 1) {
+                    var i = cellPoints[j];
+                    var dX = abs(x - xy[2 * i]);
+                    var dY = abs(y - xy[2 * i + 1]);
+                    if (dX > closestDistance || dY > closestDistance)
+                        continue;
+                    var d = hypot(dX, dY);
+                    if (d < closestDistance || (d == closestDistance && closest >= 0 && i < closest)) {
+                        closest = i;
+                        closestDistance = d;
+                    }
+                }
+            }
+        }
+        return closest;
+    }
+
+    // Returns the points whose distance to (x, y) is strictly smaller than radius, by increasing
+    // distance (and index, in case of ties).
+    int[] within(double x, double y, double radius) {
+        var points = new int[16];
+        var count = 0;
+        var column0 = clamp((x - radius - minX) / cellSize, columns);
+        var column1 = clamp((x + radius - minX) / cellSize, columns);
+        var row0 = clamp((y - radius - minY) / cellSize, rows);
+        var row1 = clamp((y + radius - minY) / cellSize, rows);
+        for (var row = row0; row <= row1; row += 1) {
+            for (var column = column0; column <= column1; column += 1) {
+                var c = row * columns + column;
+                for (var j = cellStarts[c]; j < cellStarts[c + 1]; j += 1) {
+                    var i = cellPoints[j];
+                    if (hypot(x - xy[2 * i], y - xy[2 * i + 1]) < radius) {
+                        if (count == points.length)
+                            points = Arrays.copyOf(points, 2 * count);
+                        points[count++] = i;
+                    }
+                }
+            }
+        }
+        return sortedByDistance(x, y, Arrays.copyOf(points, count));
+    }
+
+    // Returns the (at most) count points closest to (x, y), by increasing distance (and index, in
+    // case of ties). The search radius is doubled until it contains enough points.
+    int[] nearest(double x, double y, int count) {
+        if (count <= 0 || cellPoints.length == 0)
+            return new int[0];
+        var maxRadius = max(
+                hypot(max(abs(x - allMinX), abs(x - allMaxX)), max(abs(y - allMinY), abs(y - allMaxY))),
+                cellSize);
+        var radius = cellSize;
+        while (true) {
+            // The radius is increased slightly when it covers all the points, as within is strict
+            var points = within(x, y, radius < maxRadius ? radius : Math.nextUp(maxRadius));
+            if (points.length >= count || radius >= maxRadius)
+                return points.length > count ? Arrays.copyOf(points, count) : points;
+            radius *= 2;
+        }
+    }
+
+    private int[] sortedByDistance(double x, double y, int[] points) {
+        return Arrays.stream(points)
+                .boxed()
+                .sorted((i1, i2) -> {
+                    var c = Double.compare(
+                            hypot(x - xy[2 * i1], y - xy[2 * i1 + 1]),
+                            hypot(x - xy[2 * i2], y - xy[2 * i2 + 1]));
+                    return c != 0 ? c : Integer.compare(i1, i2);
+                })
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+}
@@ -1,11 +1,9 @@
 package rigel.astronomy;
 
+import static java.lang.Math.floor;
 import static rigel.astronomy.Epoch.J2000;
-import static java.time.temporal.ChronoUnit.MILLIS;
 
-import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
-import java.time.temporal.ChronoUnit;
 
 import rigel.coordinates.GeographicCoordinates;
 import rigel.math.Angle;
@@ -17,22 +15,29 @@ public final class SiderealTime {
             Angle.ofHr(0.000_025_862),
             Angle.ofHr(2_400.051_336),
             Angle.ofHr(6.697_374_558));
-    private static final double HOURS_PER_MILLIS = 1e-3 / (60d * 60d);
+    private static final double HOURS_PER_DAY = 24;
     private static final double U1 = Angle.ofHr(1.002_737_909);
 
     private SiderealTime() {}
 
     public static double greenwich(ZonedDateTime when) {
-        var whenUtc = when.withZoneSameInstant(ZoneOffset.UTC);
+        return greenwich(Epoch.julianDate(when));
+    }
 
-        var whenUtc0 = whenUtc.truncatedTo(ChronoUnit.DAYS);
-        var s0 = GST_POLYNOMIAL.at(J2000.julianCenturiesUntil(whenUtc0));
-        var s1 = U1 * (whenUtc0.until(whenUtc, MILLIS) * HOURS_PER_MILLIS);
+    public static double greenwich(double julianDate) {
+        // Julian dates start at 12h UTC, so the one of 0h UTC of the same day ends with .5
+        var julianDate0 = floor(julianDate - 0.5) + 0.5;
+        var s0 = GST_POLYNOMIAL.at(J2000.julianCenturiesUntil(julianDate0));
+        var s1 = U1 * ((julianDate - julianDate0) * HOURS_PER_DAY);
 
         return Angle.normalizePositive(s0 + s1);
     }
 
     public static double local(ZonedDateTime when, GeographicCoordinates where) {
-        return Angle.normalizePositive(greenwich(when) + where.lon());
+        return local(Epoch.julianDate(when), where);
+    }
+
+    public static double local(double julianDate, GeographicCoordinates where) {
+        return Angle.normalizePositive(greenwich(julianDate) + where.lon());
     }
 }
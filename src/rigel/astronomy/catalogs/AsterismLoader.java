@@ -6,30 +6,48 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.HashMap;
-
-import rigel.astronomy.objects.Asterism;
-import rigel.astronomy.objects.Star;
+import java.util.Arrays;
 
 public enum AsterismLoader implements StarCatalogue.Loader {
     INSTANCE;
 
     @Override
     public void load(InputStream inputStream, StarCatalogue.Builder builder) throws IOException {
-        var hipparcosToStar = new HashMap<Integer, Star>();
-        for (var star : builder.stars()) {
-            if (star.hipparcosId() > 0)
-                hipparcosToStar.put(star.hipparcosId(), star);
+        var hipparcosToIndex = new IntIndexMap(builder.starCount());
+        for (var i = 0; i < builder.starCount(); i += 1) {
+            var hipparcosId = builder.hipparcosId(i);
+            if (hipparcosId > 0)
+                hipparcosToIndex.put(hipparcosId, i);
         }
 
         try (var r = new BufferedReader(new InputStreamReader(inputStream, US_ASCII))) {
+            var starIndices = new int[16];
             var line = (String)null;
             while ((line = r.readLine()) != null) {
-                var stars = new ArrayList<Star>();
-                for (var id : line.split(","))
-                    stars.add(hipparcosToStar.get(Integer.parseInt(id)));
-                builder.addAsterism(new Asterism(stars));
+                var count = 0;
+                var id = 0;
+                var digits = 0;
+                for (var i = 0; i <= line.length(); i += 1) {
+                    var c = i < line.length() ? line.charAt(i) : ',';
+                    if (c != ',') {
+                        if (c < '0' || c > '9')
+                            throw new NumberFormatException("invalid Hipparcos id in line: " + line);
+                        id = 10 * id + (c - '0');
+                        digits += 1;
+                        continue;
+                    }
+                    if (digits == 0)
+                        throw new NumberFormatException("missing Hipparcos id in line: " + line);
+                    var starIndex = hipparcosToIndex.get(id);
+                    if (starIndex < 0)
+                        throw new IllegalArgumentException("unknown Hipparcos id: " + id);
+                    if (count == starIndices.length)
+                        starIndices = Arrays.copyOf(starIndices, 2 * count);
+                    starIndices[count++] = starIndex;
+                    id = 0;
+                    digits = 0;
+                }
+                builder.addAsterism(Arrays.copyOf(starIndices, count));
             }
         }
     }
@@ -0,0 +1,132 @@
+package rigel.astronomy.catalogs;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public enum BinaryCatalogueLoader implements StarCatalogue.Loader {
+    INSTANCE;
+
+    // File layout (big endian), see BinaryCatalogueWriter:
+    //   header: magic (8 bytes), version, star count, name bytes count, asterism count,
+    //           asterism star indices count, padding (6 ints)
+    //   columns: ra[n] and dec[n] (double), magnitude[n], color index[n], proper motion in ra[n]
+    //            and in dec[n] (float),
+    //            Hipparcos id[n] and name offset[n + 1] (int),
+    //   asterisms: asterism offset[a + 1] and asterism star index[m] (int),
+    //   then the UTF-8 name bytes.
+    static final byte[] MAGIC = {'R', 'I', 'G', 'E', 'L', 'C', 'A', 'T'};
+    static final int VERSION = 3;
+    static final int HEADER_BYTES = MAGIC.length + 6 * Integer.BYTES;
+
+    static long fileSize(int starCount, int nameBytesCount, int asterismCount, int asterismStarIndicesCount) {
+        return HEADER_BYTES
+                + (long) starCount * (2 * Double.BYTES + 4 * Float.BYTES + 2 * Integer.BYTES)
+                + Integer.BYTES
+                + (long) (asterismCount + 1 + asterismStarIndicesCount) * Integer.BYTES
+                + nameBytesCount;
+    }
+
+    @Override
+    public void load(InputStream inputStream, StarCatalogue.Builder builder) throws IOException {
+        load(ByteBuffer.wrap(inputStream.readAllBytes()), builder);
+    }
+
+    @Override
+    public void load(Path path, StarCatalogue.Builder builder) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            load(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), builder);
+        }
+    }
+
+    private static void load(ByteBuffer buffer, StarCatalogue.Builder builder) throws IOException {
+        var magic = new byte[MAGIC.length];
+        buffer.get(0, magic);
+        if (!Arrays.equals(magic, MAGIC))
+            throw new IOException("not a binary star catalogue");
+        var version = buffer.getInt(MAGIC.length);
+        if (version != VERSION)
+            throw new IOException("unsupported binary star catalogue version: " + version);
+
+        var starCount = buffer.getInt(MAGIC.length + Integer.BYTES);
+        var nameBytesCount = buffer.getInt(MAGIC.length + 2 * Integer.BYTES);
+        var asterismCount = buffer.getInt(MAGIC.length + 3 * Integer.BYTES);
+        var asterismStarIndicesCount = buffer.getInt(MAGIC.length + 4 * Integer.BYTES);
+        if (starCount < 0 || nameBytesCount < 0 || asterismCount < 0 || asterismStarIndicesCount < 0
+                || buffer.limit() < fileSize(starCount, nameBytesCount, asterismCount, asterismStarIndicesCount))
+            throw new IOException("truncated binary star catalogue");
+
+        var raOffset = HEADER_BYTES;
+        var decOffset = raOffset + starCount * Double.BYTES;
+        var magnitudeOffset = decOffset + starCount * Double.BYTES;
+        var colorIndexOffset = magnitudeOffset + starCount * Float.BYTES;
+        var properMotionRaOffset = colorIndexOffset + starCount * Float.BYTES;
+        var properMotionDecOffset = properMotionRaOffset + starCount * Float.BYTES;
+        var hipparcosIdOffset = properMotionDecOffset + starCount * Float.BYTES;
+        var nameOffsetOffset = hipparcosIdOffset + starCount * Integer.BYTES;
+        var asterismOffsetOffset = nameOffsetOffset + (starCount + 1) * Integer.BYTES;
+        var asterismStarIndexOffset = asterismOffsetOffset + (asterismCount + 1) * Integer.BYTES;
+        var namesOffset = asterismStarIndexOffset + asterismStarIndicesCount * Integer.BYTES;
+
+        // Star indices in the file are relative to its first star
+        var firstStar = builder.starCount();
+
+        // Each asterism is added, in the order of the file, as soon as its stars and the previous
+        // asterisms have been, so that the catalogues passed to the progress listener of the builder
+        // while the stars are loaded (see StarCatalogue.Builder) include them. asterismReadyAt[a] is
+        // the number of stars of the file after which asterism a can be added.
+        var asterismReadyAt = new int[asterismCount];
+        for (var a = 0; a < asterismCount; a += 1) {
+            var start = buffer.getInt(asterismOffsetOffset + a * Integer.BYTES);
+            var end = buffer.getInt(asterismOffsetOffset + (a + 1) * Integer.BYTES);
+            if (start < 0 || end < start || end > asterismStarIndicesCount)
+                throw new IOException("invalid asterism in binary star catalogue");
+            var readyAt = a > 0 ? asterismReadyAt[a - 1] : 0;
+            for (var i = start; i < end; i += 1)
+                readyAt = Math.max(readyAt, buffer.getInt(asterismStarIndexOffset + i * Integer.BYTES) + 1);
+            asterismReadyAt[a] = readyAt;
+        }
+        var nextAsterism = 0;
+
+        var nameBytes = new byte[64];
+        for (var i = 0; i < starCount; i += 1) {
+            for (; nextAsterism < asterismCount && asterismReadyAt[nextAsterism] <= i; nextAsterism += 1)
+                addAsterism(buffer, builder, asterismOffsetOffset, asterismStarIndexOffset, firstStar, nextAsterism);
+
+            var nameStart = buffer.getInt(nameOffsetOffset + i * Integer.BYTES);
+            var nameLength = buffer.getInt(nameOffsetOffset + (i + 1) * Integer.BYTES) - nameStart;
+            if (nameLength > nameBytes.length)
+                nameBytes = new byte[nameLength];
+            buffer.get(namesOffset + nameStart, nameBytes, 0, nameLength);
+
+            builder.addStar(
+                    buffer.getInt(hipparcosIdOffset + i * Integer.BYTES),
+                    new String(nameBytes, 0, nameLength, UTF_8),
+                    buffer.getDouble(raOffset + i * Double.BYTES),
+                    buffer.getDouble(decOffset + i * Double.BYTES),
+                    buffer.getFloat(magnitudeOffset + i * Float.BYTES),
+                    buffer.getFloat(colorIndexOffset + i * Float.BYTES),
+                    buffer.getFloat(properMotionRaOffset + i * Float.BYTES),
+                    buffer.getFloat(properMotionDecOffset + i * Float.BYTES));
+        }
+
+        for (; nextAsterism < asterismCount; nextAsterism += 1)
+            addAsterism(buffer, builder, asterismOffsetOffset, asterismStarIndexOffset, firstStar, nextAsterism);
+    }
+
+    private static void addAsterism(ByteBuffer buffer, StarCatalogue.Builder builder,
+                                    int asterismOffsetOffset, int asterismStarIndexOffset, int firstStar, int a) {
+        var start = buffer.getInt(asterismOffsetOffset + a * Integer.BYTES);
+        var end = buffer.getInt(asterismOffsetOffset + (a + 1) * Integer.BYTES);
+        var starIndices = new int[end - start];
+        for (var i = 0; i < starIndices.length; i += 1)
+            starIndices[i] = firstStar + buffer.getInt(asterismStarIndexOffset + (start + i) * Integer.BYTES);
+        builder.addAsterism(starIndices);
+    }
+}
@@ -0,0 +1,94 @@
+package rigel.astronomy.catalogs;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static rigel.astronomy.catalogs.BinaryCatalogueLoader.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public final class BinaryCatalogueWriter {
+    private BinaryCatalogueWriter() {}
+
+    // Converts a HYG database file, and optionally an asterism file, to the binary format
+    // read by BinaryCatalogueLoader.
+    // Usage: BinaryCatalogueWriter <hygdata.csv> [<asterisms.txt>] <output file>
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 && args.length != 3) {
+            System.err.println("usage: BinaryCatalogueWriter <hygdata.csv> [<asterisms.txt>] <output file>");
+            System.exit(1);
+        }
+        var builder = new StarCatalogue.Builder()
+                .loadFrom(Path.of(args[0]), HygDatabaseLoader.INSTANCE);
+        if (args.length == 3)
+            builder.loadFrom(Path.of(args[1]), AsterismLoader.INSTANCE);
+        var catalogue = builder.build();
+        write(catalogue, Path.of(args[args.length - 1]));
+    }
+
+    public static void write(StarCatalogue catalogue, Path path) throws IOException {
+        var starCount = catalogue.size();
+        var names = new byte[starCount][];
+        var nameBytesCount = 0;
+        for (var i = 0; i < starCount; i += 1) {
+            names[i] = catalogue.name(i).getBytes(UTF_8);
+            nameBytesCount += names[i].length;
+        }
+
+        var asterismCount = catalogue.asterismCount();
+        var asterismStarIndicesCount = 0;
+        for (var a = 0; a < asterismCount; a += 1)
+            asterismStarIndicesCount += catalogue.asterismSize(a);
+
+        var size = fileSize(starCount, nameBytesCount, asterismCount, asterismStarIndicesCount);
+        var buffer = ByteBuffer.allocate(Math.toIntExact(size));
+        buffer.put(MAGIC)
+                .putInt(VERSION)
+                .putInt(starCount)
+                .putInt(nameBytesCount)
+                .putInt(asterismCount)
+                .putInt(asterismStarIndicesCount)
+                .putInt(0);
+        for (var i = 0; i < starCount; i += 1)
+            buffer.putDouble(catalogue.ra(i));
+        for (var i = 0; i < starCount; i += 1)
+            buffer.putDouble(catalogue.dec(i));
+        for (var i = 0; i < starCount; i += 1)
+            buffer.putFloat((float) catalogue.magnitude(i));
+        for (var i = 0; i < starCount; i += 1)
+            buffer.putFloat((float) catalogue.colorIndex(i));
+        for (var i = 0; i < starCount; i += 1)
+            buffer.putFloat((float) catalogue.properMotionRa(i));
+        for (var i = 0; i < starCount; i += 1)
+            buffer.putFloat((float) catalogue.properMotionDec(i));
+        for (var i = 0; i < starCount; i += 1)
+            buffer.putInt(catalogue.hipparcosId(i));
+        var nameOffset = 0;
+        for (var name : names) {
+            buffer.putInt(nameOffset);
+            nameOffset += name.length;
+        }
+        buffer.putInt(nameOffset);
+        var asterismOffset = 0;
+        for (var a = 0; a < asterismCount; a += 1) {
+            buffer.putInt(asterismOffset);
+            asterismOffset += catalogue.asterismSize(a);
+        }
+        buffer.putInt(asterismOffset);
+        for (var a = 0; a < asterismCount; a += 1) {
+            for (var i = 0; i < catalogue.asterismSize(a); i += 1)
+                buffer.putInt(catalogue.asterismStarIndex(a, i));
+        }
+        for (var name : names)
+            buffer.put(name);
+
+        buffer.flip();
+        try (var channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+}
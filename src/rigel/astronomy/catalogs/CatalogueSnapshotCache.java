@@ -0,0 +1,143 @@
+package rigel.astronomy.catalogs;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Caches built catalogues in a directory, as binary catalogue files (see BinaryCatalogueLoader)
+// named after a hash of the inputs of the builder: the loaders and the contents they load.
+final class CatalogueSnapshotCache {
+    private static final String PREFIX = "catalogue-";
+    private static final String SUFFIX = ".bin";
+    // Part of the hash, to be changed with the contents of snapshots, so that older ones are
+    // rebuilt (2: stars sorted by increasing magnitude)
+    private static final int SNAPSHOT_VERSION = 2;
+
+    private final Path directory;
+    private final MessageDigest digest;
+    private final List<Input> inputs = new ArrayList<>();
+
+    CatalogueSnapshotCache(Path directory) {
+        this.directory = directory;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every Java platform supports SHA-256
+        }
+        digest.update(ByteBuffer.allocate(2 * Integer.BYTES)
+                .putInt(BinaryCatalogueLoader.VERSION)
+                .putInt(SNAPSHOT_VERSION)
+                .flip());
+    }
+
+    void add(byte[] bytes, StarCatalogue.Loader loader) {
+        update(loader, bytes);
+        inputs.add(new Input(bytes, null, loader));
+    }
+
+    void add(Path path, StarCatalogue.Loader loader) throws IOException {
+        update(loader, Files.readAllBytes(path));
+        inputs.add(new Input(null, path, loader));
+    }
+
+    private void update(StarCatalogue.Loader loader, byte[] bytes) {
+        var loaderName = (loader.getClass().getName() + "." + loader).getBytes(UTF_8);
+        digest.update(ByteBuffer.allocate(Integer.BYTES + Long.BYTES)
+                .putInt(loaderName.length)
+                .putLong(bytes.length)
+                .flip());
+        digest.update(loaderName);
+        digest.update(bytes);
+    }
+
+    // Returns the cached catalogue if there is one, otherwise loads the inputs into the given
+    // (empty) builder, builds the catalogue, sorted by increasing magnitude, and caches it.
+    //
+    // Snapshots are written sorted, so that the progress listener of the builder, if any, receives
+    // catalogues of the brightest stars while one is loaded.
+    StarCatalogue build(StarCatalogue.Builder builder) {
+        var snapshot = directory.resolve(PREFIX + hexString(digest.digest()) + SUFFIX);
+        if (Files.isRegularFile(snapshot)) {
+            try {
+                var snapshotBuilder = new StarCatalogue.Builder();
+                if (builder.progressListener() != null)
+                    snapshotBuilder.withProgressListener(builder.progressListener());
+                return snapshotBuilder
+                        .loadFrom(snapshot, BinaryCatalogueLoader.INSTANCE)
+                        .build();
+            } catch (IOException | RuntimeException e) {
+                // Corrupted snapshot, rebuild it
+            }
+        }
+
+        try {
+            for (var input : inputs) {
+                if (input.path != null)
+                    builder.loadFrom(input.path, input.loader);
+                else
+                    builder.loadFrom(new ByteArrayInputStream(input.bytes), input.loader);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        var unsortedCatalogue = builder.build();
+        var catalogue = unsortedCatalogue.brightest(unsortedCatalogue.size());
+        write(catalogue, snapshot);
+        return catalogue;
+    }
+
+    // The cache is an optimisation only, so failing to write it is not an error.
+    private void write(StarCatalogue catalogue, Path snapshot) {
+        try {
+            Files.createDirectories(directory);
+            var temporary = Files.createTempFile(directory, PREFIX, ".tmp");
+            try {
+                BinaryCatalogueWriter.write(catalogue, temporary);
+                Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            deleteStaleSnapshots(snapshot);
+        } catch (IOException e) {
+            // Ignored, the catalogue will be rebuilt next time
+        }
+    }
+
+    private void deleteStaleSnapshots(Path snapshot) throws IOException {
+        try (var files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (var file : files) {
+                if (!file.equals(snapshot))
+                    Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static String hexString(byte[] bytes) {
+        var b = new StringBuilder(2 * bytes.length);
+        for (var x : bytes)
+            b.append(Character.forDigit((x >> 4) & 0xF, 16)).append(Character.forDigit(x & 0xF, 16));
+        return b.toString();
+    }
+
+    private static final class Input {
+        private final byte[] bytes;
+        private final Path path;
+        private final StarCatalogue.Loader loader;
+
+        Input(byte[] bytes, Path path, StarCatalogue.Loader loader) {
+            this.bytes = bytes;
+            this.path = path;
+            this.loader = loader;
+        }
+    }
+}
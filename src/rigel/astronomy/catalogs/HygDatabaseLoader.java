@@ -2,65 +2,362 @@ package rigel.astronomy.catalogs;
 
 import static java.nio.charset.StandardCharsets.US_ASCII;
 
-import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-
-import rigel.astronomy.objects.Star;
-import rigel.coordinates.EquatorialCoordinates;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public enum HygDatabaseLoader implements StarCatalogue.Loader {
-    INSTANCE;
+    // Loads the file sequentially.
+    INSTANCE,
+    // Loads large files by parsing line-aligned chunks of them in parallel, in the common fork-join pool.
+    // Stars are added to the builder in file order, as with INSTANCE.
+    PARALLEL;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
 
     @Override
     public void load(InputStream inputStream, StarCatalogue.Builder builder) throws IOException {
-        try (var r = new BufferedReader(new InputStreamReader(inputStream, US_ASCII))) {
-            var line = r.readLine(); // skip header line
-            while ((line = r.readLine()) != null) {
-                var parts = line.split(",");
-                var bayer = HygFields.BAYER.extractFrom(parts, "?") + " " + HygFields.CON.extractFrom(parts);
-                var name = HygFields.PROPER.extractFrom(parts, bayer);
-                var hipparcosId = HygFields.HIP.extractIntFrom(parts, 0);
-                var magnitude = (float) HygFields.MAG.extractDoubleFrom(parts);
-                var colorIndex = (float) HygFields.CI.extractDoubleFrom(parts, 0d);
-                var ra = HygFields.RARAD.extractDoubleFrom(parts);
-                var dec = HygFields.DECRAD.extractDoubleFrom(parts);
-                var star = new Star(hipparcosId, name, EquatorialCoordinates.of(ra, dec), magnitude, colorIndex);
-                builder.addStar(star);
+        try (inputStream) {
+            var parser = new LineParser();
+            var buffer = new byte[BUFFER_SIZE];
+            var size = 0;
+            var headerSkipped = false;
+            while (true) {
+                if (size == buffer.length)
+                    buffer = Arrays.copyOf(buffer, 2 * buffer.length); // line longer than the buffer
+                var read = inputStream.read(buffer, size, buffer.length - size);
+                if (read < 0)
+                    break;
+                size += read;
+
+                var lineStart = 0;
+                if (!headerSkipped) {
+                    var headerEnd = parser.nextLineStart(buffer, 0, size);
+                    if (headerEnd == 0)
+                        continue;
+                    lineStart = headerEnd;
+                    headerSkipped = true;
+                }
+                lineStart = parser.parseLines(buffer, lineStart, size, builder);
+                size -= lineStart;
+                System.arraycopy(buffer, lineStart, buffer, 0, size);
             }
+            if (headerSkipped)
+                parser.parseLastLine(buffer, 0, size, builder);
         }
     }
 
-    private enum HygFields {
-        ID, HIP, HD, HR, GL, BF, PROPER,
-        RA, DEC, DIST, PMRA, PMDEC, RV,
-        MAG, ABSMAG, SPECT, CI,
-        X, Y, Z, VX, VY, VZ,
-        RARAD, DECRAD, PMRARAD, PMDECRAD,
-        BAYER, FLAM, CON, COMP, COMP_PRIMARY,
-        BASE, LUM, VAR, VAR_MIN, VAR_MAX;
+    @Override
+    public void load(Path path, StarCatalogue.Builder builder) throws IOException {
+        var pool = ForkJoinPool.commonPool();
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var chunkCount = (int) Math.min(channel.size() / MIN_CHUNK_SIZE, CHUNKS_PER_THREAD * pool.getParallelism());
+            if (this != PARALLEL || chunkCount <= 1) {
+                load(Channels.newInputStream(channel), builder);
+                return;
+            }
+
+            var boundaries = chunkBoundaries(channel, chunkCount);
+            var tasks = new ArrayList<Callable<StarCatalogue.Builder>>(chunkCount);
+            for (var i = 0; i < chunkCount; i += 1) {
+                var chunkStart = boundaries[i];
+                var chunkEnd = boundaries[i + 1];
+                tasks.add(() -> loadChunk(channel, chunkStart, chunkEnd));
+            }
+            for (var chunk : pool.invokeAll(tasks))
+                builder.addStars(join(chunk));
+        }
+    }
+
+    // Returns the start positions of the given number of chunks of the file (excluding its header line),
+    // followed by its size. All positions except the last one are line starts.
+    private static long[] chunkBoundaries(FileChannel channel, int chunkCount) throws IOException {
+        var size = channel.size();
+        var boundaries = new long[chunkCount + 1];
+        boundaries[0] = nextLineStart(channel, 0);
+        for (var i = 1; i < chunkCount; i += 1)
+            boundaries[i] = Math.max(boundaries[i - 1], nextLineStart(channel, size / chunkCount * i));
+        boundaries[chunkCount] = size;
+        return boundaries;
+    }
 
-        String extractFrom(String[] elements) {
-            return elements[ordinal()];
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        var buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        while (true) {
+            buffer.clear();
+            var read = channel.read(buffer, position);
+            if (read < 0)
+                return channel.size();
+            for (var i = 0; i < read; i += 1) {
+                if (buffer.get(i) == '\n')
+                    return position + i + 1;
+            }
+            position += read;
+        }
+    }
+
+    private static StarCatalogue.Builder loadChunk(FileChannel channel, long start, long end) throws IOException {
+        var buffer = ByteBuffer.allocate(Math.toIntExact(end - start));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0)
+                throw new EOFException();
+        }
+
+        var chunk = buffer.array();
+        var parser = new LineParser();
+        var builder = new StarCatalogue.Builder();
+        var lineStart = parser.parseLines(chunk, 0, chunk.length, builder);
+        parser.parseLastLine(chunk, lineStart, chunk.length, builder);
+        return builder;
+    }
+
+    private static StarCatalogue.Builder join(Future<StarCatalogue.Builder> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new Error(cause);
+        }
+    }
+
+    private static int lineEnd(byte[] buffer, int lineStart, int newlineIndex) {
+        return newlineIndex > lineStart && buffer[newlineIndex - 1] == '\r' ? newlineIndex - 1 : newlineIndex;
+    }
+
+    // Extracts the few fields needed from a line, without splitting it into strings.
+    private static final class LineParser {
+        private static final int FIELDS_COUNT = HygFields.CON.ordinal() + 1;
+        private static final double[] POWERS_OF_TEN = {
+                1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+                1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+        private static final long[] POWERS_OF_FIVE = powersOfFive(27);
+        private static final long MAX_EXACT_MANTISSA = 1L << 53;
+        private static final long MAX_MANTISSA = 1_000_000_000_000_000_000L;
+
+        private final int[] fieldStarts = new int[FIELDS_COUNT];
+        private final int[] fieldEnds = new int[FIELDS_COUNT];
+        private byte[] nameBytes = new byte[32];
+
+        private static long[] powersOfFive(int maxExponent) {
+            var powers = new long[maxExponent + 1];
+            powers[0] = 1;
+            for (var i = 1; i <= maxExponent; i += 1)
+                powers[i] = 5 * powers[i - 1];
+            return powers;
         }
 
-        String extractFrom(String[] elements, String defaultValue) {
-            var s = extractFrom(elements);
-            return s.trim().isEmpty() ? defaultValue : s; // s.trim().isEmpty() equiv. to s.isBlank()
+        // Returns the start of the line following the one starting at the given index, or the latter
+        // if that line is not complete.
+        int nextLineStart(byte[] buffer, int from, int to) {
+            for (var i = from; i < to; i += 1) {
+                if (buffer[i] == '\n')
+                    return i + 1;
+            }
+            return from;
         }
 
-        int extractIntFrom(String[] elements, int defaultValue) {
-            var s = extractFrom(elements);
-            return s.trim().isEmpty() ? defaultValue : Integer.parseInt(s);
+        // Parses all the complete lines of the given range, and returns the start of the incomplete one.
+        int parseLines(byte[] buffer, int from, int to, StarCatalogue.Builder builder) {
+            var lineStart = from;
+            for (var i = from; i < to; i += 1) {
+                if (buffer[i] == '\n') {
+                    parse(buffer, lineStart, lineEnd(buffer, lineStart, i), builder);
+                    lineStart = i + 1;
+                }
+            }
+            return lineStart;
         }
 
-        double extractDoubleFrom(String[] elements) {
-            return Double.parseDouble(extractFrom(elements));
+        // Parses the last line of a file, which isn't terminated by a newline.
+        void parseLastLine(byte[] buffer, int from, int to, StarCatalogue.Builder builder) {
+            if (from < to)
+                parse(buffer, from, lineEnd(buffer, from, to), builder);
         }
 
-        double extractDoubleFrom(String[] elements, double defaultValue) {
-            return extractFrom(elements).trim().isEmpty() ? defaultValue : extractDoubleFrom(elements);
+        void parse(byte[] line, int start, int end, StarCatalogue.Builder builder) {
+            if (start == end)
+                return;
+            splitFields(line, start, end);
+
+            var hipparcosId = isBlank(line, HygFields.HIP) ? 0 : parseInt(line, HygFields.HIP);
+            var magnitude = (float) parseDouble(line, HygFields.MAG);
+            var colorIndex = isBlank(line, HygFields.CI) ? 0f : (float) parseDouble(line, HygFields.CI);
+            var ra = parseDouble(line, HygFields.RARAD);
+            var dec = parseDouble(line, HygFields.DECRAD);
+            var properMotionRa = isBlank(line, HygFields.PMRARAD) ? 0f : (float) parseDouble(line, HygFields.PMRARAD);
+            var properMotionDec = isBlank(line, HygFields.PMDECRAD) ? 0f : (float) parseDouble(line, HygFields.PMDECRAD);
+            builder.addStar(hipparcosId, name(line), ra, dec, magnitude, colorIndex, properMotionRa, properMotionDec);
         }
+
+        private void splitFields(byte[] line, int start, int end) {
+            var field = 0;
+            fieldStarts[0] = start;
+            for (var i = start; i < end && field < FIELDS_COUNT; i += 1) {
+                if (line[i] == ',') {
+                    fieldEnds[field++] = i;
+                    if (field < FIELDS_COUNT)
+                        fieldStarts[field] = i + 1;
+                }
+            }
+            if (field < FIELDS_COUNT)
+                fieldEnds[field++] = end;
+            if (field < FIELDS_COUNT)
+                throw new IllegalArgumentException("missing fields in line: " + new String(line, start, end - start, US_ASCII));
+        }
+
+        private String name(byte[] line) {
+            if (!isBlank(line, HygFields.PROPER))
+                return string(line, HygFields.PROPER);
+
+            // Bayer designation followed by the constellation, e.g. "Alp Ori"
+            var bayerLength = isBlank(line, HygFields.BAYER) ? 1 : length(HygFields.BAYER);
+            var conLength = length(HygFields.CON);
+            var nameLength = bayerLength + 1 + conLength;
+            if (nameLength > nameBytes.length)
+                nameBytes = new byte[nameLength];
+            if (isBlank(line, HygFields.BAYER))
+                nameBytes[0] = '?';
+            else
+                System.arraycopy(line, fieldStarts[HygFields.BAYER.ordinal()], nameBytes, 0, bayerLength);
+            nameBytes[bayerLength] = ' ';
+            System.arraycopy(line, fieldStarts[HygFields.CON.ordinal()], nameBytes, bayerLength + 1, conLength);
+            return new String(nameBytes, 0, nameLength, US_ASCII);
+        }
+
+        private int length(HygFields field) {
+            return fieldEnds[field.ordinal()] - fieldStarts[field.ordinal()];
+        }
+
+        private String string(byte[] line, HygFields field) {
+            return new String(line, fieldStarts[field.ordinal()], length(field), US_ASCII);
+        }
+
+        private boolean isBlank(byte[] line, HygFields field) {
+            // Equivalent to String.trim().isEmpty()
+            for (var i = fieldStarts[field.ordinal()]; i < fieldEnds[field.ordinal()]; i += 1) {
+                if (line[i] > ' ')
+                    return false;
+            }
+            return true;
+        }
+
+        private int parseInt(byte[] line, HygFields field) {
+            var start = fieldStarts[field.ordinal()];
+            var end = fieldEnds[field.ordinal()];
+            var negative = start < end && line[start] == '-';
+            var i = negative || (start < end && line[start] == '+') ? start + 1 : start;
+            if (i == end || end - i > 9)
+                return Integer.parseInt(string(line, field));
+
+            var value = 0;
+            for (; i < end; i += 1) {
+                var digit = line[i] - '0';
+                if (digit < 0 || digit > 9)
+                    return Integer.parseInt(string(line, field));
+                value = 10 * value + digit;
+            }
+            return negative ? -value : value;
+        }
+
+        // Parses a decimal number of at most 18 digits without going through a string. Its value is
+        // mantissa / 10^k = (mantissa / 5^k) * 2^-k, and the division is either exact (Clinger's fast path)
+        // or carried out bit by bit to obtain the correctly rounded result, like Double.parseDouble does.
+        // Every other case is handed to Double.parseDouble.
+        private double parseDouble(byte[] line, HygFields field) {
+            var start = fieldStarts[field.ordinal()];
+            var end = fieldEnds[field.ordinal()];
+            var negative = start < end && line[start] == '-';
+            var i = negative || (start < end && line[start] == '+') ? start + 1 : start;
+
+            var mantissa = 0L;
+            var exponent = 0;
+            var digits = 0;
+            var pointSeen = false;
+            for (; i < end; i += 1) {
+                var b = line[i];
+                if (b == '.' && !pointSeen) {
+                    pointSeen = true;
+                    continue;
+                }
+                var digit = b - '0';
+                if (digit < 0 || digit > 9 || mantissa >= MAX_MANTISSA / 10)
+                    return Double.parseDouble(string(line, field));
+                mantissa = 10 * mantissa + digit;
+                digits += 1;
+                if (pointSeen)
+                    exponent -= 1;
+            }
+            if (digits == 0 || -exponent >= POWERS_OF_FIVE.length)
+                return Double.parseDouble(string(line, field));
+
+            double value;
+            if (mantissa == 0 || exponent == 0 && mantissa <= MAX_EXACT_MANTISSA)
+                value = mantissa;
+            else if (exponent == 0)
+                return Double.parseDouble(string(line, field));
+            else if (mantissa <= MAX_EXACT_MANTISSA && -exponent < POWERS_OF_TEN.length)
+                value = mantissa / POWERS_OF_TEN[-exponent];
+            else
+                value = roundedQuotient(mantissa, POWERS_OF_FIVE[-exponent], exponent);
+            return negative ? -value : value;
+        }
+
+        // Returns (dividend / divisor) * 2^binaryExponent, correctly rounded to the nearest double.
+        // The dividend must be positive, and the result must be a normal double.
+        private static double roundedQuotient(long dividend, long divisor, int binaryExponent) {
+            var quotient = dividend / divisor;
+            var remainder = dividend % divisor;
+            // Extend the quotient to 54 significant bits, the last one being the rounding bit.
+            while (quotient < 1L << 53) {
+                quotient <<= 1;
+                remainder <<= 1;
+                binaryExponent -= 1;
+                if (Long.compareUnsigned(remainder, divisor) >= 0) {
+                    quotient |= 1;
+                    remainder -= divisor;
+                }
+            }
+            var sticky = remainder != 0;
+            while (quotient >= 1L << 54) {
+                sticky |= (quotient & 1) != 0;
+                quotient >>>= 1;
+                binaryExponent += 1;
+            }
+            var significand = quotient >>> 1;
+            if ((quotient & 1) != 0 && (sticky || (significand & 1) != 0))
+                significand += 1;
+            return Math.scalb((double) significand, binaryExponent + 1);
+        }
+    }
+
+    private enum HygFields {
+        ID, HIP, HD, HR, GL, BF, PROPER,
+        RA, DEC, DIST, PMRA, PMDEC, RV,
+        MAG, ABSMAG, SPECT, CI,
+        X, Y, Z, VX, VY, VZ,
+        RARAD, DECRAD, PMRARAD, PMDECRAD,
+        BAYER, FLAM, CON, COMP, COMP_PRIMARY,
+        BASE, LUM, VAR, VAR_MIN, VAR_MAX
     }
 }
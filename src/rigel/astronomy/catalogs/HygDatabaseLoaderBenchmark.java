@@ -0,0 +1,149 @@
+package rigel.astronomy.catalogs;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+import rigel.astronomy.objects.Star;
+import rigel.coordinates.EquatorialCoordinates;
+
+// Compares the throughput and the allocation rate of HygDatabaseLoader with those of the
+// original String.split-based loader, on the bundled catalogue and on a synthetic one. The
+// synthetic catalogue is loaded both from memory (parsing alone) and from its file (reading and
+// parsing, through Loader.load(Path, Builder)), where HygDatabaseLoader.PARALLEL also takes part.
+// Usage: HygDatabaseLoaderBenchmark [synthetic rows count]
+public final class HygDatabaseLoaderBenchmark {
+    private static final int DEFAULT_SYNTHETIC_ROWS = 1_000_000;
+    private static final int WARMUP_RUNS = 5;
+    private static final int MEASURED_RUNS = 5;
+    private static final List<StarCatalogue.Loader> LOADERS =
+            List.of(LegacyLoader.INSTANCE, HygDatabaseLoader.INSTANCE);
+    private static final List<StarCatalogue.Loader> FILE_LOADERS =
+            List.of(LegacyLoader.INSTANCE, HygDatabaseLoader.INSTANCE, HygDatabaseLoader.PARALLEL);
+
+    private HygDatabaseLoaderBenchmark() {}
+
+    public static void main(String[] args) throws IOException {
+        var syntheticRows = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SYNTHETIC_ROWS;
+
+        byte[] bundled;
+        try (var s = HygDatabaseLoaderBenchmark.class.getResourceAsStream("/hygdata_v3.csv")) {
+            bundled = s.readAllBytes();
+        }
+        run("bundled", LOADERS, loader -> load(bundled, loader));
+
+        var synthetic = Files.createTempFile("hygdata", ".csv");
+        try {
+            Files.write(synthetic, syntheticCatalogue(bundled, syntheticRows));
+            var syntheticBytes = Files.readAllBytes(synthetic);
+            run("synthetic", LOADERS, loader -> load(syntheticBytes, loader));
+            run("file", FILE_LOADERS, loader -> load(synthetic, loader));
+        } finally {
+            Files.delete(synthetic);
+        }
+    }
+
+    // Repeats the data lines of the given catalogue until it has the given number of rows.
+    private static byte[] syntheticCatalogue(byte[] catalogue, int rows) {
+        var text = new String(catalogue, US_ASCII);
+        var headerEnd = text.indexOf('\n') + 1;
+        var lines = text.substring(headerEnd).split("\n");
+        var b = new StringBuilder(text.substring(0, headerEnd));
+        for (var i = 0; i < rows; i += 1)
+            b.append(lines[i % lines.length]).append('\n');
+        return b.toString().getBytes(US_ASCII);
+    }
+
+    private static void run(String name, List<StarCatalogue.Loader> loaders, Source source) throws IOException {
+        for (var loader : loaders) {
+            for (var i = 0; i < WARMUP_RUNS; i += 1)
+                source.load(loader);
+
+            var stars = 0;
+            var nanos = 0L;
+            var bytes = 0L;
+            for (var i = 0; i < MEASURED_RUNS; i += 1) {
+                System.gc();
+                var bytes0 = allocatedBytes();
+                var nanos0 = System.nanoTime();
+                stars += source.load(loader);
+                nanos += System.nanoTime() - nanos0;
+                bytes += allocatedBytes() - bytes0;
+            }
+            System.out.printf(Locale.ROOT, "%-9s %-26s %,12.0f lines/s %,8.1f bytes/star%n",
+                    name,
+                    loader.getClass().getSimpleName() + "." + loader,
+                    stars / (nanos * 1e-9),
+                    (double) bytes / stars);
+        }
+    }
+
+    private static int load(byte[] catalogue, StarCatalogue.Loader loader) throws IOException {
+        var builder = new StarCatalogue.Builder();
+        loader.load(new ByteArrayInputStream(catalogue), builder);
+        return builder.stars().size();
+    }
+
+    private static int load(Path catalogue, StarCatalogue.Loader loader) throws IOException {
+        var builder = new StarCatalogue.Builder();
+        loader.load(catalogue, builder);
+        return builder.stars().size();
+    }
+
+    // Sums the bytes allocated by all live threads, so that those of the fork-join pool workers used
+    // by HygDatabaseLoader.PARALLEL are counted too.
+    private static long allocatedBytes() {
+        var bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        var total = 0L;
+        for (var bytes : bean.getThreadAllocatedBytes(bean.getAllThreadIds())) {
+            if (bytes > 0)
+                total += bytes;
+        }
+        return total;
+    }
+
+    // Loads a catalogue with the given loader and returns its number of stars.
+    @FunctionalInterface
+    private interface Source {
+        int load(StarCatalogue.Loader loader) throws IOException;
+    }
+
+    // The original implementation of HygDatabaseLoader, kept as a reference.
+    private enum LegacyLoader implements StarCatalogue.Loader {
+        INSTANCE;
+
+        private static final int HIP = 1, PROPER = 6, MAG = 13, CI = 16, RARAD = 23, DECRAD = 24, BAYER = 27, CON = 29;
+
+        @Override
+        public void load(InputStream inputStream, StarCatalogue.Builder builder) throws IOException {
+            try (var r = new BufferedReader(new InputStreamReader(inputStream, US_ASCII))) {
+                var line = r.readLine(); // skip header line
+                while ((line = r.readLine()) != null) {
+                    var parts = line.split(",");
+                    var bayer = extractFrom(parts, BAYER, "?") + " " + parts[CON];
+                    var name = extractFrom(parts, PROPER, bayer);
+                    var hipparcosId = parts[HIP].trim().isEmpty() ? 0 : Integer.parseInt(parts[HIP]);
+                    var magnitude = (float) Double.parseDouble(parts[MAG]);
+                    var colorIndex = parts[CI].trim().isEmpty() ? 0f : (float) Double.parseDouble(parts[CI]);
+                    var ra = Double.parseDouble(parts[RARAD]);
+                    var dec = Double.parseDouble(parts[DECRAD]);
+                    builder.addStar(new Star(hipparcosId, name, EquatorialCoordinates.of(ra, dec), magnitude, colorIndex));
+                }
+            }
+        }
+
+        private static String extractFrom(String[] parts, int index, String defaultValue) {
+            var s = parts[index];
+            return s.trim().isEmpty() ? defaultValue : s;
+        }
+    }
+}
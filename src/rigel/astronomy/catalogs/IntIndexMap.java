@@ -0,0 +1,66 @@
+package rigel.astronomy.catalogs;
+
+import static rigel.Preconditions.checkArgument;
+
+import java.util.Arrays;
+
+// A map from int keys to non-negative int values (typically indices), using open addressing.
+final class IntIndexMap {
+    private static final int ABSENT = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    IntIndexMap(int expectedSize) {
+        var capacity = Integer.highestOneBit(Math.max(4, 2 * expectedSize - 1)) << 1;
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(values, ABSENT);
+    }
+
+    void put(int key, int value) {
+        checkArgument(value >= 0);
+        if (2 * (size + 1) > keys.length)
+            rehash(2 * keys.length);
+
+        var slot = slot(keys, values, key);
+        if (values[slot] == ABSENT)
+            size += 1;
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    // Returns the value associated with the key, or -1 if there is none.
+    int get(int key) {
+        return values[slot(keys, values, key)];
+    }
+
+    private static int slot(int[] keys, int[] values, int key) {
+        var mask = keys.length - 1;
+        var slot = mix(key) & mask;
+        while (values[slot] != ABSENT && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private static int mix(int key) {
+        var h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void rehash(int capacity) {
+        var oldKeys = keys;
+        var oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, ABSENT);
+        for (var i = 0; i < oldKeys.length; i += 1) {
+            if (oldValues[i] != ABSENT) {
+                var slot = slot(keys, values, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package rigel.astronomy.catalogs;
+
+import static java.lang.Math.*;
+
+import rigel.astronomy.Epoch;
+
+// Propagates the positions of the stars of a catalogue (at epoch J2000) to other epochs, using
+// their proper motions. Each star moves linearly in the plane tangent to the sphere at its
+// catalogue position, along the unit vectors pointing east and north, which neglects radial
+// velocities and perspective effects.
+final class ProperMotionPropagator {
+    // Epochs are rounded to multiples of this number of Julian years, so that animations only pay
+    // for the propagation when the rounded epoch changes. The resulting error is less than 0.5 year
+    // of proper motion, i.e. about 5" for Barnard's star, the fastest one.
+    static final double EPOCH_QUANTUM_YEARS = 1;
+
+    private static final double JULIAN_YEARS_PER_CENTURY = 100;
+
+    private final StarPositions catalogueEpochPositions;
+    // Unit vectors of the catalogue positions, and their variation per Julian year
+    private final double[] x, y, z;
+    private final double[] dx, dy, dz;
+
+    private double cachedYears = 0;
+    private StarPositions cachedPositions;
+
+    // The arrays must all have the same size.
+    ProperMotionPropagator(double[] ra, double[] dec, float[] properMotionRa, float[] properMotionDec) {
+        var size = ra.length;
+        this.x = new double[size];
+        this.y = new double[size];
+        this.z = new double[size];
+        this.dx = new double[size];
+        this.dy = new double[size];
+        this.dz = new double[size];
+        for (var i = 0; i < size; i += 1) {
+            var cosRa = cos(ra[i]);
+            var sinRa = sin(ra[i]);
+            var cosDec = cos(dec[i]);
+            var sinDec = sin(dec[i]);
+            x[i] = cosDec * cosRa;
+            y[i] = cosDec * sinRa;
+            z[i] = sinDec;
+            // east = (-sin ra, cos ra, 0), north = (-sin dec cos ra, -sin dec sin ra, cos dec)
+            var east = properMotionRa[i];
+            var north = properMotionDec[i];
+            dx[i] = -east * sinRa - north * sinDec * cosRa;
+            dy[i] = east * cosRa - north * sinDec * sinRa;
+            dz[i] = north * cosDec;
+        }
+        this.catalogueEpochPositions = new StarPositions(x, y, z);
+        this.cachedPositions = catalogueEpochPositions;
+    }
+
+    synchronized StarPositions positionsAt(double julianDate) {
+        var years = Epoch.J2000.julianCenturiesUntil(julianDate) * JULIAN_YEARS_PER_CENTURY;
+        var quantizedYears = rint(years / EPOCH_QUANTUM_YEARS) * EPOCH_QUANTUM_YEARS;
+        if (quantizedYears != cachedYears) {
+            cachedPositions = quantizedYears == 0 ? catalogueEpochPositions : propagate(quantizedYears);
+            cachedYears = quantizedYears;
+        }
+        return cachedPositions;
+    }
+
+    // A single pass over the primitive columns, free of trigonometric functions.
+    private StarPositions propagate(double years) {
+        var size = x.length;
+        var px = new double[size];
+        var py = new double[size];
+        var pz = new double[size];
+        for (var i = 0; i < size; i += 1) {
+            var vx = x[i] + years * dx[i];
+            var vy = y[i] + years * dy[i];
+            var vz = z[i] + years * dz[i];
+            var inverseNorm = 1 / sqrt(vx * vx + vy * vy + vz * vz);
+            px[i] = vx * inverseNorm;
+            py[i] = vy * inverseNorm;
+            pz[i] = vz * inverseNorm;
+        }
+        return new StarPositions(px, py, pz);
+    }
+}
@@ -0,0 +1,325 @@
+package rigel.astronomy.catalogs;
+
+import static java.lang.Math.*;
+import static rigel.Preconditions.checkArgument;
+
+import java.util.Arrays;
+import java.util.List;
+
+import rigel.coordinates.EquatorialCoordinates;
+
+// A spatial index of the stars of a catalogue, based on the hierarchical triangular mesh (HTM):
+// the sphere is split in the 8 faces of an octahedron, each of which is recursively split in 4
+// triangles (trixels) up to a given depth. Stars are sorted by the id of the leaf trixel containing
+// them, so that the stars of any trixel occupy a contiguous range.
+public final class SkyIndex {
+    private static final int MAX_DEPTH = 12;
+    private static final int STARS_PER_LEAF = 8;
+    // Margin used when classifying trixels, to be robust to rounding errors
+    private static final double EPSILON = 1e-9;
+
+    private static final double[][] ROOT_VERTICES = {
+            {0, 0, 1}, {1, 0, 0}, {0, 1, 0}, {-1, 0, 0}, {0, -1, 0}, {0, 0, -1}
+    };
+    // Vertices of the 8 root trixels, counterclockwise as seen from outside the sphere
+    private static final int[][] ROOT_TRIXELS = {
+            {1, 5, 2}, {2, 5, 3}, {3, 5, 4}, {4, 5, 1},
+            {1, 0, 4}, {4, 0, 3}, {3, 0, 2}, {2, 0, 1}
+    };
+
+    private final int depth;
+    // Star indices sorted by leaf id, and the leaf id and unit vector of each of them
+    private final int[] stars;
+    private final int[] leafIds;
+    private final double[] x, y, z;
+
+    public SkyIndex(StarCatalogue catalogue) {
+        this(catalogue, defaultDepth(catalogue.size()));
+    }
+
+    public SkyIndex(StarCatalogue catalogue, int depth) {
+        checkArgument(0 <= depth && depth <= MAX_DEPTH);
+        var size = catalogue.size();
+        var keys = new long[size];
+        for (var i = 0; i < size; i += 1) {
+            var v = unitVector(catalogue.ra(i), catalogue.dec(i));
+            keys[i] = ((long) leafId(v, depth) << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        this.depth = depth;
+        this.stars = new int[size];
+        this.leafIds = new int[size];
+        this.x = new double[size];
+        this.y = new double[size];
+        this.z = new double[size];
+        for (var i = 0; i < size; i += 1) {
+            var star = (int) keys[i];
+            stars[i] = star;
+            leafIds[i] = (int) (keys[i] >>> 32);
+            var ra = catalogue.ra(star);
+            var dec = catalogue.dec(star);
+            x[i] = cos(dec) * cos(ra);
+            y[i] = cos(dec) * sin(ra);
+            z[i] = sin(dec);
+        }
+    }
+
+    private static int defaultDepth(int starCount) {
+        var depth = 0;
+        while (depth < MAX_DEPTH && 8L << (2 * depth) < starCount / STARS_PER_LEAF)
+            depth += 1;
+        return depth;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    // Returns the indices of the stars at most the given angular radius (in radians) away from
+    // the given center, in increasing order.
+    public int[] cone(EquatorialCoordinates center, double radius) {
+        checkArgument(0 <= radius && radius <= PI);
+        var n = unitVector(center.ra(), center.dec());
+        return query(new double[][]{n}, new double[]{cos(radius)});
+    }
+
+    // Returns the indices of the stars inside the given convex spherical polygon, whose vertices
+    // are given in order (clockwise or counterclockwise), in increasing order.
+    public int[] polygon(List<EquatorialCoordinates> vertices) {
+        checkArgument(vertices.size() >= 3);
+        var count = vertices.size();
+        var points = new double[count][];
+        var centroid = new double[3];
+        for (var i = 0; i < count; i += 1) {
+            points[i] = unitVector(vertices.get(i).ra(), vertices.get(i).dec());
+            add(centroid, points[i]);
+        }
+        return query(edgeNormals(points, centroid), new double[count]);
+    }
+
+    // Returns the indices of the stars inside the rectangular field of view of the given width
+    // and height (in radians, measured along the tangent plane axes) centered on the given point,
+    // with north up, in increasing order.
+    public int[] fieldOfView(EquatorialCoordinates center, double width, double height) {
+        checkArgument(0 < width && width < PI && 0 < height && height < PI);
+        var ra = center.ra();
+        var dec = center.dec();
+        var c = unitVector(ra, dec);
+        var east = new double[]{-sin(ra), cos(ra), 0};
+        var north = new double[]{-sin(dec) * cos(ra), -sin(dec) * sin(ra), cos(dec)};
+        var u = tan(width / 2);
+        var v = tan(height / 2);
+        var corners = new double[][]{
+                tangentPoint(c, east, north, u, v),
+                tangentPoint(c, east, north, -u, v),
+                tangentPoint(c, east, north, -u, -v),
+                tangentPoint(c, east, north, u, -v)
+        };
+        return query(edgeNormals(corners, c), new double[corners.length]);
+    }
+
+    private static double[] tangentPoint(double[] c, double[] east, double[] north, double u, double v) {
+        return normalized(new double[]{
+                c[0] + u * east[0] + v * north[0],
+                c[1] + u * east[1] + v * north[1],
+                c[2] + u * east[2] + v * north[2]});
+    }
+
+    // The normals of the great circles through the edges of a convex polygon, oriented towards
+    // the given interior point.
+    private static double[][] edgeNormals(double[][] points, double[] interior) {
+        var normals = new double[points.length][];
+        for (var i = 0; i < points.length; i += 1) {
+            var normal = cross(points[i], points[(i + 1) % points.length]);
+            if (dot(normal, interior) < 0)
+                scale(normal, -1);
+            normals[i] = normalized(normal);
+        }
+        return normals;
+    }
+
+    // Returns the stars p such that normals[i]·p >= limits[i] for all i.
+    private int[] query(double[][] normals, double[] limits) {
+        var sines = new double[limits.length];
+        for (var i = 0; i < limits.length; i += 1)
+            sines[i] = sqrt(max(0, 1 - limits[i] * limits[i]));
+        var result = new IntList();
+        for (var root = 0; root < ROOT_TRIXELS.length; root += 1) {
+            var t = ROOT_TRIXELS[root];
+            visit(8 + root, 0, ROOT_VERTICES[t[0]], ROOT_VERTICES[t[1]], ROOT_VERTICES[t[2]],
+                    normals, limits, sines, result);
+        }
+        var indices = result.toArray();
+        Arrays.sort(indices);
+        return indices;
+    }
+
+    // Each constraint i is a cap of angular radius θ = acos(limits[i]), with sines[i] = sin θ.
+    // A trixel is classified through its bounding cap, of center b and angular radius ρ: it is
+    // outside the constraint if the angle between b and normals[i] is at least θ + ρ, and inside
+    // if that angle is at most θ - ρ, which is tested on the cosines.
+    private void visit(int id, int level, double[] v0, double[] v1, double[] v2,
+                       double[][] normals, double[] limits, double[] sines, IntList result) {
+        var shift = 2 * (depth - level);
+        var from = lowerBound((long) id << shift);
+        var to = lowerBound((long) (id + 1) << shift);
+        if (from == to)
+            return;
+
+        var b = new double[]{v0[0] + v1[0] + v2[0], v0[1] + v1[1] + v2[1], v0[2] + v1[2] + v2[2]};
+        normalized(b);
+        var cosRho = min(dot(b, v0), min(dot(b, v1), dot(b, v2)));
+        var sinRho = sqrt(max(0, 1 - cosRho * cosRho));
+        var inside = true;
+        for (var i = 0; i < normals.length; i += 1) {
+            var cosDistance = dot(normals[i], b);
+            // cos(θ + ρ), only meaningful if θ + ρ < π, and cos(θ - ρ), only meaningful if θ > ρ
+            var cosSum = limits[i] * cosRho - sines[i] * sinRho;
+            var cosDifference = limits[i] * cosRho + sines[i] * sinRho;
+            var sumBelowPi = sines[i] * cosRho + limits[i] * sinRho > 0;
+            if (sumBelowPi && cosDistance <= cosSum - EPSILON)
+                return;
+            if (limits[i] >= cosRho || cosDistance < cosDifference + EPSILON)
+                inside = false;
+        }
+
+        if (inside) {
+            for (var i = from; i < to; i += 1)
+                result.add(stars[i]);
+        } else if (level == depth || to - from <= STARS_PER_LEAF) {
+            for (var i = from; i < to; i += 1) {
+                if (contains(normals, limits, i))
+                    result.add(stars[i]);
+            }
+        } else {
+            var w0 = midpoint(v1, v2);
+            var w1 = midpoint(v0, v2);
+            var w2 = midpoint(v0, v1);
+            visit(4 * id, level + 1, v0, w2, w1, normals, limits, sines, result);
+            visit(4 * id + 1, level + 1, v1, w0, w2, normals, limits, sines, result);
+            visit(4 * id + 2, level + 1, v2, w1, w0, normals, limits, sines, result);
+            visit(4 * id + 3, level + 1, w0, w1, w2, normals, limits, sines, result);
+        }
+    }
+
+    private boolean contains(double[][] normals, double[] limits, int i) {
+        for (var j = 0; j < normals.length; j += 1) {
+            var n = normals[j];
+            if (n[0] * x[i] + n[1] * y[i] + n[2] * z[i] < limits[j])
+                return false;
+        }
+        return true;
+    }
+
+    // The position of the first star whose leaf id is at least the given one.
+    private int lowerBound(long leafId) {
+        var low = 0;
+        var high = leafIds.length;
+        while (low < high) {
+            var mid = (low + high) >>> 1;
+            if (leafIds[mid] < leafId)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private static int leafId(double[] p, int depth) {
+        var root = 0;
+        while (root < ROOT_TRIXELS.length - 1 && !contains(ROOT_VERTICES, ROOT_TRIXELS[root], p))
+            root += 1;
+        var t = ROOT_TRIXELS[root];
+        var v0 = ROOT_VERTICES[t[0]];
+        var v1 = ROOT_VERTICES[t[1]];
+        var v2 = ROOT_VERTICES[t[2]];
+        var id = 8 + root;
+        for (var level = 0; level < depth; level += 1) {
+            var w0 = midpoint(v1, v2);
+            var w1 = midpoint(v0, v2);
+            var w2 = midpoint(v0, v1);
+            if (contains(v0, w2, w1, p)) {
+                id = 4 * id;
+                v1 = w2;
+                v2 = w1;
+            } else if (contains(v1, w0, w2, p)) {
+                id = 4 * id + 1;
+                v0 = v1;
+                v1 = w0;
+                v2 = w2;
+            } else if (contains(v2, w1, w0, p)) {
+                id = 4 * id + 2;
+                v0 = v2;
+                v1 = w1;
+                v2 = w0;
+            } else {
+                id = 4 * id + 3;
+                v0 = w0;
+                v1 = w1;
+                v2 = w2;
+            }
+        }
+        return id;
+    }
+
+    private static boolean contains(double[][] vertices, int[] trixel, double[] p) {
+        return contains(vertices[trixel[0]], vertices[trixel[1]], vertices[trixel[2]], p);
+    }
+
+    private static boolean contains(double[] v0, double[] v1, double[] v2, double[] p) {
+        return dot(cross(v0, v1), p) >= 0 && dot(cross(v1, v2), p) >= 0 && dot(cross(v2, v0), p) >= 0;
+    }
+
+    private static double[] unitVector(double ra, double dec) {
+        return new double[]{cos(dec) * cos(ra), cos(dec) * sin(ra), sin(dec)};
+    }
+
+    private static double[] midpoint(double[] u, double[] v) {
+        return normalized(new double[]{u[0] + v[0], u[1] + v[1], u[2] + v[2]});
+    }
+
+    private static double[] cross(double[] u, double[] v) {
+        return new double[]{
+                u[1] * v[2] - u[2] * v[1],
+                u[2] * v[0] - u[0] * v[2],
+                u[0] * v[1] - u[1] * v[0]};
+    }
+
+    private static double dot(double[] u, double[] v) {
+        return u[0] * v[0] + u[1] * v[1] + u[2] * v[2];
+    }
+
+    private static void add(double[] u, double[] v) {
+        u[0] += v[0];
+        u[1] += v[1];
+        u[2] += v[2];
+    }
+
+    private static void scale(double[] u, double factor) {
+        u[0] *= factor;
+        u[1] *= factor;
+        u[2] *= factor;
+    }
+
+    private static double[] normalized(double[] u) {
+        scale(u, 1 / sqrt(dot(u, u)));
+        return u;
+    }
+
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, 2 * size);
+            values[size] = value;
+            size += 1;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
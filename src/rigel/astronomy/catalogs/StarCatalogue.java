@@ -1,86 +1,596 @@
 package rigel.astronomy.catalogs;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static rigel.Preconditions.checkArgument;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 
+import rigel.astronomy.Epoch;
 import rigel.astronomy.objects.Asterism;
 import rigel.astronomy.objects.Star;
+import rigel.coordinates.EquatorialCoordinates;
 
 public final class StarCatalogue {
-    private final List<Star> stars;
-    private final Map<Asterism, List<Integer>> asterismIndices;
+    private static final int FIRST_PROGRESS_STAR_COUNT = 512;
+    private static final int PROGRESS_GROWTH_FACTOR = 2;
+
+    // Stars are stored by column, and only turned into Star instances when requested.
+    private final Columns columns;
+    private final Star[] stars;
+    private final List<Star> starList;
+
+    // The indices of the stars of asterism a are asterismStarIndices[asterismOffsets[a] .. asterismOffsets[a + 1][
+    private final int[] asterismOffsets;
+    private final int[] asterismStarIndices;
+    private final Asterism[] asterisms;
+    private Map<Asterism, Integer> asterismNumbers;
+    private SkyIndex skyIndex;
+    private ProperMotionPropagator propagator;
 
     public StarCatalogue(List<Star> stars, List<Asterism> asterisms) {
-        var starMap = new HashMap<Star, Integer>();
+        this(builderFor(stars, asterisms));
+    }
+
+    private StarCatalogue(Builder builder) {
+        var columns = builder.columns.trimmedCopy();
+        var stars = new Star[columns.size];
+        if (builder.stars != null)
+            System.arraycopy(builder.stars, 0, stars, 0, Math.min(builder.stars.length, columns.size));
+
+        var asterismCount = builder.asterisms.size();
+        this.columns = columns;
+        this.stars = stars;
+        this.starList = new StarList(this::star, columns.size);
+        this.asterismOffsets = Arrays.copyOf(builder.asterismOffsets, asterismCount + 1);
+        this.asterismStarIndices = Arrays.copyOf(builder.asterismStarIndices, builder.asterismOffsets[asterismCount]);
+        this.asterisms = builder.asterisms.toArray(new Asterism[0]);
+    }
+
+    private static Builder builderFor(List<Star> stars, List<Asterism> asterisms) {
+        var builder = new Builder();
         for (var star : stars)
-            starMap.put(star, starMap.size());
+            builder.addStar(star);
+        for (var asterism : asterisms)
+            builder.addAsterism(asterism);
+        return builder;
+    }
 
-        var asterismIndices = new HashMap<Asterism, List<Integer>>();
-        for (var asterism : asterisms) {
-            var asterismStars = asterism.stars();
-            var indices = new ArrayList<Integer>(asterismStars.size());
-            for (Star asterismStar : asterismStars) {
-                var starIndex = starMap.get(asterismStar);
-                if (starIndex == null)
-                    throw new IllegalArgumentException();
-                indices.add(starIndex);
-            }
-            asterismIndices.put(asterism, Collections.unmodifiableList(indices));
-        }
+    public int size() {
+        return columns.size;
+    }
 
-        this.stars = List.copyOf(stars);
-        this.asterismIndices = Collections.unmodifiableMap(asterismIndices);
+    public Star star(int index) {
+        Objects.checkIndex(index, columns.size);
+        var star = stars[index];
+        if (star == null) {
+            // Benign race: Star is immutable, and two threads can only create equivalent instances.
+            star = columns.star(index);
+            stars[index] = star;
+        }
+        return star;
     }
 
     public List<Star> stars() {
-        return stars;
+        return starList;
+    }
+
+    public String name(int index) {
+        return columns.name(index);
+    }
+
+    public int hipparcosId(int index) {
+        return columns.hipparcosId[index];
+    }
+
+    public double ra(int index) {
+        return columns.ra[index];
+    }
+
+    public double dec(int index) {
+        return columns.dec[index];
+    }
+
+    public double magnitude(int index) {
+        return columns.magnitude[index];
+    }
+
+    public double colorIndex(int index) {
+        return columns.colorIndex[index];
+    }
+
+    public int colorTemperature(int index) {
+        return columns.colorTemperature[index];
+    }
+
+    // In radians per Julian year, including the cos(dec) factor
+    public double properMotionRa(int index) {
+        return columns.properMotionRa[index];
+    }
+
+    // In radians per Julian year
+    public double properMotionDec(int index) {
+        return columns.properMotionDec[index];
+    }
+
+    // Returns the positions of the stars at the given instant, taking their proper motions into
+    // account. The instant is rounded (see ProperMotionPropagator), and the last result is cached.
+    public StarPositions positionsAt(ZonedDateTime when) {
+        return positionsAt(Epoch.julianDate(when));
+    }
+
+    public StarPositions positionsAt(double julianDate) {
+        return propagator().positionsAt(julianDate);
+    }
+
+    private synchronized ProperMotionPropagator propagator() {
+        if (propagator == null)
+            propagator = new ProperMotionPropagator(columns.ra, columns.dec, columns.properMotionRa, columns.properMotionDec);
+        return propagator;
+    }
+
+    public int asterismCount() {
+        return asterisms.length;
+    }
+
+    public int asterismSize(int asterismIndex) {
+        return asterismOffsets[asterismIndex + 1] - asterismOffsets[asterismIndex];
+    }
+
+    public int asterismStarIndex(int asterismIndex, int i) {
+        Objects.checkIndex(i, asterismSize(asterismIndex));
+        return asterismStarIndices[asterismOffsets[asterismIndex] + i];
+    }
+
+    // Built on first use
+    public synchronized SkyIndex skyIndex() {
+        if (skyIndex == null)
+            skyIndex = new SkyIndex(this);
+        return skyIndex;
+    }
+
+    // Returns a catalogue with the given number of brightest stars of this one, sorted by increasing
+    // magnitude, and those of its asterisms whose stars are all part of it, sorted by the index of
+    // their faintest star. Every prefix of its stars thus comes with a prefix of its asterisms: the
+    // ones whose stars are all part of it.
+    public StarCatalogue brightest(int count) {
+        checkArgument(count >= 0);
+        var size = Math.min(count, columns.size);
+
+        // Sort keys: the magnitude, as an int ordered like the float, followed by the index.
+        var keys = new long[columns.size];
+        for (var i = 0; i < keys.length; i += 1) {
+            var bits = Float.floatToIntBits(columns.magnitude[i]);
+            keys[i] = ((long) (bits ^ ((bits >> 31) & 0x7FFFFFFF)) << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        var builder = new Builder();
+        var newIndices = new int[columns.size];
+        Arrays.fill(newIndices, -1);
+        for (var i = 0; i < size; i += 1) {
+            var index = (int) keys[i];
+            newIndices[index] = i;
+            builder.columns.add(columns, index);
+            if (stars[index] != null) {
+                builder.ensureStarsCapacity();
+                builder.stars[i] = stars[index];
+            }
+        }
+        // Sort keys of the kept asterisms: the index of their faintest star, followed by their index,
+        // so that asterisms completed by the same star keep their order.
+        var asterismKeys = new long[asterisms.length];
+        var keptAsterismCount = 0;
+        asterisms:
+        for (var a = 0; a < asterisms.length; a += 1) {
+            var faintest = 0;
+            for (var i = 0; i < asterismSize(a); i += 1) {
+                var newIndex = newIndices[asterismStarIndex(a, i)];
+                if (newIndex < 0)
+                    continue asterisms;
+                faintest = Math.max(faintest, newIndex);
+            }
+            asterismKeys[keptAsterismCount] = ((long) faintest << 32) | a;
+            keptAsterismCount += 1;
+        }
+        Arrays.sort(asterismKeys, 0, keptAsterismCount);
+        for (var k = 0; k < keptAsterismCount; k += 1) {
+            var a = (int) asterismKeys[k];
+            var starIndices = new int[asterismSize(a)];
+            for (var i = 0; i < starIndices.length; i += 1)
+                starIndices[i] = newIndices[asterismStarIndex(a, i)];
+            builder.addAsterism(starIndices);
+        }
+        return builder.build();
     }
 
     public Set<Asterism> asterisms() {
-        return asterismIndices.keySet();
+        return asterismNumbers().keySet();
     }
 
     public List<Integer> asterismIndices(Asterism asterism) {
-        var indices = asterismIndices.get(asterism);
-        if (indices == null)
+        var asterismIndex = asterismNumbers().get(asterism);
+        if (asterismIndex == null)
             throw new IllegalArgumentException();
-        return indices;
+        var indices = new ArrayList<Integer>(asterismSize(asterismIndex));
+        for (var i = 0; i < asterismSize(asterismIndex); i += 1)
+            indices.add(asterismStarIndex(asterismIndex, i));
+        return Collections.unmodifiableList(indices);
+    }
+
+    // Asterism instances are only created when requested through the methods above.
+    private synchronized Map<Asterism, Integer> asterismNumbers() {
+        if (asterismNumbers == null) {
+            var numbers = new HashMap<Asterism, Integer>();
+            for (var a = 0; a < asterisms.length; a += 1) {
+                if (asterisms[a] == null) {
+                    var asterismStars = new ArrayList<Star>(asterismSize(a));
+                    for (var i = 0; i < asterismSize(a); i += 1)
+                        asterismStars.add(star(asterismStarIndex(a, i)));
+                    asterisms[a] = new Asterism(asterismStars);
+                }
+                numbers.put(asterisms[a], a);
+            }
+            asterismNumbers = Collections.unmodifiableMap(numbers);
+        }
+        return asterismNumbers;
     }
 
     public static final class Builder {
-        private final List<Star> stars = new ArrayList<>();
+        private final Columns columns = new Columns();
+        // Star instances, created on demand (or given to addStar) and shared with the built catalogue,
+        // so that the stars of asterisms given as Asterism instances can be identified.
+        private Star[] stars;
+        private IdentityHashMap<Star, Integer> starIndices;
+
         private final List<Asterism> asterisms = new ArrayList<>();
+        private int[] asterismOffsets = new int[]{0};
+        private int[] asterismStarIndices = new int[0];
+
+        // When not null, loading is deferred to build(), which may instead reload a cached snapshot.
+        private CatalogueSnapshotCache snapshotCache;
+
+        private Consumer<StarCatalogue> progressListener;
+        private int nextProgressStarCount;
+        // True as long as the stars were added by increasing magnitude
+        private boolean sortedByMagnitude = true;
+
+        // While loading stars by increasing magnitude, as from a snapshot (see withSnapshotCache),
+        // regularly passes to the given listener a catalogue of the stars loaded so far, i.e. of the
+        // brightest ones, and of the asterisms added so far, on the loading thread. The intervals
+        // between these catalogues grow geometrically, so that they add a constant factor to the
+        // loading time. Nothing is passed while loading stars in any other order, as the stars loaded
+        // so far are then not the brightest ones.
+        public Builder withProgressListener(Consumer<StarCatalogue> listener) {
+            progressListener = listener;
+            nextProgressStarCount = Math.max(FIRST_PROGRESS_STAR_COUNT, columns.size + 1);
+            return this;
+        }
+
+        Consumer<StarCatalogue> progressListener() {
+            return progressListener;
+        }
+
+        private void checkProgress() {
+            if (progressListener != null && sortedByMagnitude && columns.size >= nextProgressStarCount) {
+                nextProgressStarCount = PROGRESS_GROWTH_FACTOR * columns.size;
+                progressListener.accept(new StarCatalogue(this));
+            }
+        }
+
+        // Must be called before the star of the given magnitude is added.
+        private void updateSortedByMagnitude(float magnitude) {
+            if (columns.size > 0 && Float.compare(magnitude, columns.magnitude[columns.size - 1]) < 0)
+                sortedByMagnitude = false;
+        }
+
+        // Caches the built catalogue in the given directory, which should be dedicated to it:
+        // snapshots of catalogues built from other inputs are deleted when a new one is written.
+        // Stars and asterisms can then only be added through loadFrom, and the built catalogue has
+        // its stars sorted by increasing magnitude (see brightest), so that its snapshot can be
+        // loaded progressively (see withProgressListener).
+        public Builder withSnapshotCache(Path directory) {
+            if (columns.size != 0 || !asterisms.isEmpty())
+                throw new IllegalStateException();
+            snapshotCache = new CatalogueSnapshotCache(directory);
+            return this;
+        }
+
+        private void checkNotCaching() {
+            if (snapshotCache != null)
+                throw new IllegalStateException();
+        }
 
         public Builder addStar(Star star) {
-            stars.add(star);
+            var pos = star.equatorialPos();
+            addStar(star.hipparcosId(), star.name(), pos.ra(), pos.dec(), (float) star.magnitude(), (float) star.colorIndex());
+            ensureStarsCapacity();
+            stars[columns.size - 1] = star;
+            return this;
+        }
+
+        public Builder addStar(int hipparcosId, String name, double ra, double dec, float magnitude, float colorIndex) {
+            return addStar(hipparcosId, name, ra, dec, magnitude, colorIndex, 0, 0);
+        }
+
+        // Proper motions are in radians per Julian year, the one in right ascension including cos(dec).
+        public Builder addStar(int hipparcosId, String name, double ra, double dec, float magnitude, float colorIndex,
+                               float properMotionRa, float properMotionDec) {
+            checkNotCaching();
+            checkArgument(hipparcosId >= 0);
+            checkArgument(EquatorialCoordinates.isValidRa(ra) && EquatorialCoordinates.isValidDec(dec));
+            checkArgument(Float.isFinite(properMotionRa) && Float.isFinite(properMotionDec));
+            updateSortedByMagnitude(magnitude);
+            columns.add(hipparcosId, name, ra, dec, magnitude, colorIndex, Star.colorTemperatureFor(colorIndex),
+                    properMotionRa, properMotionDec);
+            checkProgress();
             return this;
         }
 
+        void addStars(Builder that) {
+            checkNotCaching();
+            for (var i = 0; i < that.columns.size; i += 1) {
+                updateSortedByMagnitude(that.columns.magnitude[i]);
+                columns.add(that.columns, i);
+            }
+            checkProgress();
+        }
+
+        public int starCount() {
+            return columns.size;
+        }
+
+        public int hipparcosId(int index) {
+            Objects.checkIndex(index, columns.size);
+            return columns.hipparcosId[index];
+        }
+
         public List<Star> stars() {
-            return Collections.unmodifiableList(stars);
+            return new StarList(this::star, columns.size);
+        }
+
+        private Star star(int index) {
+            ensureStarsCapacity();
+            if (stars[index] == null)
+                stars[index] = columns.star(index);
+            return stars[index];
+        }
+
+        private void ensureStarsCapacity() {
+            if (stars == null)
+                stars = new Star[columns.ra.length];
+            else if (stars.length < columns.size)
+                stars = Arrays.copyOf(stars, columns.ra.length);
+        }
+
+        // The given star must have been added to this builder, or obtained from stars().
+        private int indexOf(Star star) {
+            var index = starIndices != null ? starIndices.get(star) : null;
+            if (index == null) {
+                starIndices = new IdentityHashMap<>();
+                for (var i = 0; stars != null && i < Math.min(stars.length, columns.size); i += 1) {
+                    if (stars[i] != null)
+                        starIndices.put(stars[i], i);
+                }
+                index = starIndices.get(star);
+                if (index == null)
+                    throw new IllegalArgumentException();
+            }
+            return index;
         }
 
         public Builder addAsterism(Asterism asterism) {
-            asterisms.add(asterism);
+            checkNotCaching();
+            var asterismStars = asterism.stars();
+            var indices = new int[asterismStars.size()];
+            for (var i = 0; i < indices.length; i += 1)
+                indices[i] = indexOf(asterismStars.get(i));
+            addAsterism(asterism, indices);
             return this;
         }
 
-        public List<Asterism> asterisms() {
-            return Collections.unmodifiableList(asterisms);
+        public Builder addAsterism(int[] starIndices) {
+            checkNotCaching();
+            checkArgument(starIndices.length > 0);
+            for (var starIndex : starIndices)
+                Objects.checkIndex(starIndex, columns.size);
+            addAsterism(null, starIndices);
+            return this;
+        }
+
+        private void addAsterism(Asterism asterism, int[] starIndices) {
+            var count = asterisms.size();
+            var start = asterismOffsets[count];
+            var end = start + starIndices.length;
+            if (count + 2 > asterismOffsets.length)
+                asterismOffsets = Arrays.copyOf(asterismOffsets, 2 * (count + 1));
+            if (end > asterismStarIndices.length)
+                asterismStarIndices = Arrays.copyOf(asterismStarIndices, Math.max(end, 2 * asterismStarIndices.length));
+            System.arraycopy(starIndices, 0, asterismStarIndices, start, starIndices.length);
+            asterismOffsets[count + 1] = end;
+            asterisms.add(asterism);
+        }
+
+        public int asterismCount() {
+            return asterisms.size();
         }
 
         public Builder loadFrom(InputStream inputStream, Loader loader) throws IOException {
-            loader.load(inputStream, this);
+            if (snapshotCache != null)
+                snapshotCache.add(inputStream.readAllBytes(), loader);
+            else
+                loader.load(inputStream, this);
+            return this;
+        }
+
+        public Builder loadFrom(Path path, Loader loader) throws IOException {
+            if (snapshotCache != null)
+                snapshotCache.add(path, loader);
+            else
+                loader.load(path, this);
             return this;
         }
 
         public StarCatalogue build() {
-            return new StarCatalogue(stars, asterisms);
+            if (snapshotCache != null) {
+                var cache = snapshotCache;
+                snapshotCache = null;
+                return cache.build(this);
+            }
+            return new StarCatalogue(this);
         }
     }
 
     public interface Loader {
         void load(InputStream inputStream, Builder builder) throws IOException;
+
+        default void load(Path path, Builder builder) throws IOException {
+            try (var inputStream = Files.newInputStream(path)) {
+                load(inputStream, builder);
+            }
+        }
+    }
+
+    private static final class StarList extends AbstractList<Star> implements RandomAccess {
+        private final IntFunction<Star> star;
+        private final int size;
+
+        StarList(IntFunction<Star> star, int size) {
+            this.star = star;
+            this.size = size;
+        }
+
+        @Override
+        public Star get(int index) {
+            Objects.checkIndex(index, size);
+            return star.apply(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private static final class Columns {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private int size;
+        private int[] hipparcosId = new int[INITIAL_CAPACITY];
+        private double[] ra = new double[INITIAL_CAPACITY];
+        private double[] dec = new double[INITIAL_CAPACITY];
+        private float[] magnitude = new float[INITIAL_CAPACITY];
+        private float[] colorIndex = new float[INITIAL_CAPACITY];
+        // Proper motions, in radians per Julian year (the one in right ascension including cos(dec))
+        private float[] properMotionRa = new float[INITIAL_CAPACITY];
+        private float[] properMotionDec = new float[INITIAL_CAPACITY];
+        private int[] colorTemperature = new int[INITIAL_CAPACITY];
+        // The UTF-8 bytes of all names, the one of star i being at [nameOffset[i], nameOffset[i + 1][
+        private int[] nameOffset = new int[INITIAL_CAPACITY + 1];
+        private byte[] nameBytes = new byte[8 * INITIAL_CAPACITY];
+
+        void add(int hipparcosId, String name, double ra, double dec, float magnitude, float colorIndex, int colorTemperature,
+                 float properMotionRa, float properMotionDec) {
+            ensureCapacity(size + 1);
+            this.hipparcosId[size] = hipparcosId;
+            this.ra[size] = ra;
+            this.dec[size] = dec;
+            this.magnitude[size] = magnitude;
+            this.colorIndex[size] = colorIndex;
+            this.properMotionRa[size] = properMotionRa;
+            this.properMotionDec[size] = properMotionDec;
+            this.colorTemperature[size] = colorTemperature;
+            appendName(name);
+            size += 1;
+        }
+
+        void add(Columns that, int i) {
+            ensureCapacity(size + 1);
+            hipparcosId[size] = that.hipparcosId[i];
+            ra[size] = that.ra[i];
+            dec[size] = that.dec[i];
+            magnitude[size] = that.magnitude[i];
+            colorIndex[size] = that.colorIndex[i];
+            colorTemperature[size] = that.colorTemperature[i];
+            properMotionRa[size] = that.properMotionRa[i];
+            properMotionDec[size] = that.properMotionDec[i];
+            var nameStart = that.nameOffset[i];
+            appendNameBytes(that.nameBytes, nameStart, that.nameOffset[i + 1] - nameStart);
+            size += 1;
+        }
+
+        private void appendName(String name) {
+            var length = name.length();
+            var nameStart = nameOffset[size];
+            ensureNameCapacity(nameStart + length);
+            for (var i = 0; i < length; i += 1) {
+                var c = name.charAt(i);
+                if (c >= 0x80) {
+                    var bytes = name.getBytes(UTF_8);
+                    appendNameBytes(bytes, 0, bytes.length);
+                    return;
+                }
+                nameBytes[nameStart + i] = (byte) c;
+            }
+            nameOffset[size + 1] = nameStart + length;
+        }
+
+        private void appendNameBytes(byte[] bytes, int offset, int length) {
+            var nameStart = nameOffset[size];
+            ensureNameCapacity(nameStart + length);
+            System.arraycopy(bytes, offset, nameBytes, nameStart, length);
+            nameOffset[size + 1] = nameStart + length;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= ra.length)
+                return;
+            var newCapacity = Math.max(capacity, 2 * ra.length);
+            hipparcosId = Arrays.copyOf(hipparcosId, newCapacity);
+            ra = Arrays.copyOf(ra, newCapacity);
+            dec = Arrays.copyOf(dec, newCapacity);
+            magnitude = Arrays.copyOf(magnitude, newCapacity);
+            colorIndex = Arrays.copyOf(colorIndex, newCapacity);
+            colorTemperature = Arrays.copyOf(colorTemperature, newCapacity);
+            properMotionRa = Arrays.copyOf(properMotionRa, newCapacity);
+            properMotionDec = Arrays.copyOf(properMotionDec, newCapacity);
+            nameOffset = Arrays.copyOf(nameOffset, newCapacity + 1);
+        }
+
+        private void ensureNameCapacity(int capacity) {
+            if (capacity > nameBytes.length)
+                nameBytes = Arrays.copyOf(nameBytes, Math.max(capacity, 2 * nameBytes.length));
+        }
+
+        String name(int i) {
+            var nameStart = nameOffset[i];
+            return new String(nameBytes, nameStart, nameOffset[i + 1] - nameStart, UTF_8);
+        }
+
+        Star star(int i) {
+            return new Star(hipparcosId[i], name(i), EquatorialCoordinates.of(ra[i], dec[i]), magnitude[i], colorIndex[i]);
+        }
+
+        Columns trimmedCopy() {
+            var copy = new Columns();
+            copy.size = size;
+            copy.hipparcosId = Arrays.copyOf(hipparcosId, size);
+            copy.ra = Arrays.copyOf(ra, size);
+            copy.dec = Arrays.copyOf(dec, size);
+            copy.magnitude = Arrays.copyOf(magnitude, size);
+            copy.colorIndex = Arrays.copyOf(colorIndex, size);
+            copy.colorTemperature = Arrays.copyOf(colorTemperature, size);
+            copy.properMotionRa = Arrays.copyOf(properMotionRa, size);
+            copy.properMotionDec = Arrays.copyOf(properMotionDec, size);
+            copy.nameOffset = Arrays.copyOf(nameOffset, size + 1);
+            copy.nameBytes = Arrays.copyOf(nameBytes, nameOffset[size]);
+            return copy;
+        }
     }
 }
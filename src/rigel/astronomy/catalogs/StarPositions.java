@@ -0,0 +1,57 @@
+package rigel.astronomy.catalogs;
+
+import static java.lang.Math.atan2;
+import static java.lang.Math.sqrt;
+import static rigel.math.Angle.TAU;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+import rigel.ParallelRanges;
+import rigel.coordinates.EquatorialToHorizontalConversion;
+import rigel.coordinates.EquatorialToPlaneProjection;
+
+// The equatorial positions of the stars of a catalogue at a given epoch, stored as unit vectors.
+public final class StarPositions {
+    private final double[] x, y, z;
+
+    StarPositions(double[] x, double[] y, double[] z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public int size() {
+        return x.length;
+    }
+
+    public double ra(int index) {
+        Objects.checkIndex(index, x.length);
+        var ra = atan2(y[index], x[index]);
+        ra = ra < 0 ? ra + TAU : ra;
+        return ra < TAU ? ra : 0;
+    }
+
+    public double dec(int index) {
+        Objects.checkIndex(index, x.length);
+        return atan2(z[index], sqrt(x[index] * x[index] + y[index] * y[index]));
+    }
+
+    // Stores the projection of star i in xy[2i] and xy[2i + 1].
+    public void project(EquatorialToPlaneProjection projection, double[] xy) {
+        projection.applyToUnitVectors(x, y, z, 0, x.length, xy);
+    }
+
+    // Same as project(projection, xy), but splits the stars in ranges projected in parallel in the
+    // given pool. Every star is projected by the same code as sequentially, so results are identical.
+    public void project(EquatorialToPlaneProjection projection, double[] xy, ForkJoinPool pool) {
+        ParallelRanges.forEachRange(x.length, pool, (from, to) -> projection.applyToUnitVectors(x, y, z, from, to, xy));
+    }
+
+    // Stores the horizontal unit vector of star i in (hx[i], hy[i], hz[i]), converting ranges of
+    // stars in parallel in the given pool unless it is null.
+    public void toHorizontal(EquatorialToHorizontalConversion conversion, double[] hx, double[] hy, double[] hz,
+                             ForkJoinPool pool) {
+        ParallelRanges.forEachRange(x.length, pool, (from, to) -> conversion.applyToUnitVectors(x, y, z, from, to, hx, hy, hz));
+    }
+}
@@ -4,4 +4,10 @@ import rigel.coordinates.EclipticToEquatorialConversion;
 
 public interface CelestialObjectModel<O> {
     O at(double daysSinceJ2010, EclipticToEquatorialConversion eclipticToEquatorialConversion);
+
+    // Same as at(daysSinceJ2010, eclipticToEquatorialConversion), but may reuse the quantities
+    // shared by the models, which the context computes once.
+    default O at(EphemerisContext context) {
+        return at(context.daysSinceJ2010(), context.eclipticToEquatorialConversion());
+    }
 }
@@ -0,0 +1,185 @@
+package rigel.astronomy.models;
+
+import static java.lang.Math.*;
+import static rigel.Preconditions.checkArgument;
+import static rigel.astronomy.models.ChebyshevEphemeris.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import rigel.astronomy.Epoch;
+import rigel.coordinates.EclipticToEquatorialConversion;
+import rigel.math.Angle;
+
+public final class ChebyshevEphemerisWriter {
+    private static final int COEFFICIENT_COUNT = 14;
+    // The segment lengths of the bodies of ChebyshevEphemeris.BODIES, in days, which give the errors
+    // documented in ChebyshevEphemeris. For the Moon and Mercury to Saturn, they are the longest
+    // powers of two for which the fitting error of the longitude stays below its float rounding
+    // error (about 0.05"); the others are capped at 128 days.
+    private static final double[] SEGMENT_DAYS = {128, 8, 16, 32, 64, 128, 128, 128, 128};
+    // Errors are measured at this number of points per segment and coefficient
+    private static final int ERROR_SAMPLES_PER_COEFFICIENT = 4;
+
+    // With an obliquity of 0, the models compute ecliptic coordinates (see ofObliquity)
+    private static final EclipticToEquatorialConversion ECLIPTIC = EclipticToEquatorialConversion.ofObliquity(0);
+
+    private ChebyshevEphemerisWriter() {}
+
+    // Fits the analytic models between the given dates (at 0h UTC), and writes the tables in the
+    // format read by ChebyshevEphemeris, printing the maximal error of each channel.
+    // Usage: ChebyshevEphemerisWriter <first date> <last date> <output file>
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("usage: ChebyshevEphemerisWriter <first date> <last date> <output file>");
+            System.exit(1);
+        }
+        var firstDay = Epoch.J2010.daysUntil(LocalDate.parse(args[0]).atStartOfDay(ZoneOffset.UTC));
+        var lastDay = Epoch.J2010.daysUntil(LocalDate.parse(args[1]).atStartOfDay(ZoneOffset.UTC));
+        var ephemeris = generate(firstDay, lastDay, COEFFICIENT_COUNT, SEGMENT_DAYS);
+        for (var body : BODIES) {
+            var errors = ephemeris.maxErrors(body);
+            System.out.printf("%-8s lon %.3f\" lat %.3f\" size %.3f\" %s %.3g%n", body,
+                    Angle.toDeg(errors[0]) * 3600, Angle.toDeg(errors[1]) * 3600, Angle.toDeg(errors[2]) * 3600,
+                    body == SunModel.SUN ? "mean anomaly" : body == MoonModel.MOON ? "phase" : "magnitude",
+                    body == SunModel.SUN ? Angle.toDeg(errors[3]) * 3600 : errors[3]);
+        }
+        write(ephemeris, Path.of(args[2]));
+    }
+
+    // Fits the analytic models of the bodies on segments of the given lengths (in days) covering
+    // [firstDay, lastDay] (in days since J2010), with the given number of coefficients.
+    public static ChebyshevEphemeris generate(double firstDay, double lastDay, int coefficientCount, double[] segmentDays) {
+        checkArgument(firstDay < lastDay && coefficientCount > 0 && segmentDays.length == BODIES.size());
+        var bodyCount = BODIES.size();
+        var segmentCounts = new int[bodyCount];
+        var maxErrors = new double[bodyCount][CHANNELS];
+        var coefficients = new float[bodyCount][];
+        var values = new double[CHANNELS][coefficientCount];
+        var channels = new double[CHANNELS];
+        for (var b = 0; b < bodyCount; b += 1) {
+            checkArgument(segmentDays[b] > 0);
+            segmentCounts[b] = max(1, (int) ceil((lastDay - firstDay) / segmentDays[b]));
+            coefficients[b] = new float[segmentCounts[b] * CHANNELS * coefficientCount];
+            for (var s = 0; s < segmentCounts[b]; s += 1) {
+                var segmentStart = firstDay + s * segmentDays[b];
+                for (var k = 0; k < coefficientCount; k += 1) {
+                    var x = cos(PI * (k + 0.5) / coefficientCount);
+                    sample(b, segmentStart + (x + 1d) / 2d * segmentDays[b], channels);
+                    for (var c = 0; c < CHANNELS; c += 1) {
+                        // Angles are unwrapped, so that they are continuous in the segment
+                        values[c][k] = k > 0 && isAngle(b, c)
+                                ? values[c][k - 1] + angleDifference(channels[c], values[c][k - 1])
+                                : channels[c];
+                    }
+                }
+                for (var c = 0; c < CHANNELS; c += 1)
+                    fit(values[c], coefficients[b], (s * CHANNELS + c) * coefficientCount);
+            }
+        }
+
+        var ephemeris = new ChebyshevEphemeris(firstDay, lastDay, coefficientCount, segmentDays.clone(), segmentCounts,
+                maxErrors, coefficients);
+        var expected = new double[CHANNELS];
+        for (var b = 0; b < bodyCount; b += 1) {
+            var sampleCount = segmentCounts[b] * coefficientCount * ERROR_SAMPLES_PER_COEFFICIENT;
+            for (var i = 0; i <= sampleCount; i += 1) {
+                var day = min(firstDay + i * segmentDays[b] / (coefficientCount * ERROR_SAMPLES_PER_COEFFICIENT), lastDay);
+                sample(b, day, expected);
+                ephemeris.evaluate(b, day, channels);
+                for (var c = 0; c < CHANNELS; c += 1) {
+                    var error = isAngle(b, c)
+                            ? abs(angleDifference(channels[c], expected[c]))
+                            : abs(channels[c] - expected[c]);
+                    maxErrors[b][c] = max(maxErrors[b][c], error);
+                }
+            }
+        }
+        return ephemeris;
+    }
+
+    // Stores the values of the channels of the analytic model of the given body at the given day.
+    private static void sample(int body, double daysSinceJ2010, double[] channels) {
+        var model = BODIES.get(body);
+        if (model == SunModel.SUN) {
+            var sun = SunModel.SUN.at(daysSinceJ2010, ECLIPTIC);
+            channels[0] = sun.eclipticPos().lon();
+            channels[1] = sun.eclipticPos().lat();
+            channels[2] = sun.angularSize();
+            channels[3] = sun.meanAnomaly();
+        } else if (model == MoonModel.MOON) {
+            var moon = MoonModel.MOON.at(daysSinceJ2010, ECLIPTIC);
+            channels[0] = moon.equatorialPos().ra();
+            channels[1] = moon.equatorialPos().dec();
+            channels[2] = moon.angularSize();
+            channels[3] = moon.phase();
+        } else {
+            var planet = ((PlanetModel) model).at(daysSinceJ2010, ECLIPTIC);
+            channels[0] = planet.equatorialPos().ra();
+            channels[1] = planet.equatorialPos().dec();
+            channels[2] = planet.angularSize();
+            channels[3] = planet.magnitude();
+        }
+    }
+
+    // The longitudes, and the mean anomaly of the Sun, are angles which wrap around.
+    private static boolean isAngle(int body, int channel) {
+        return channel == 0 || (channel == 3 && BODIES.get(body) == SunModel.SUN);
+    }
+
+    // Returns a - b, reduced to [-π, π].
+    private static double angleDifference(double a, double b) {
+        return Angle.normalizePositive(a - b + PI) - PI;
+    }
+
+    // Stores the coefficients of the Chebyshev polynomial interpolating the given values, at the
+    // nodes cos(π(k + 1/2)/n), in coefficients[from, from + n[.
+    private static void fit(double[] values, float[] coefficients, int from) {
+        var n = values.length;
+        for (var j = 0; j < n; j += 1) {
+            var sum = 0d;
+            for (var k = 0; k < n; k += 1)
+                sum += values[k] * cos(PI * j * (k + 0.5) / n);
+            coefficients[from + j] = (float) (j == 0 ? sum / n : 2d * sum / n);
+        }
+    }
+
+    public static void write(ChebyshevEphemeris ephemeris, Path path) throws IOException {
+        var bodyCount = BODIES.size();
+        var size = (long) HEADER_BYTES + (long) bodyCount * BODY_BYTES;
+        for (var b = 0; b < bodyCount; b += 1)
+            size += (long) ephemeris.coefficients(b).length * Float.BYTES;
+
+        var buffer = ByteBuffer.allocate(Math.toIntExact(size));
+        buffer.put(MAGIC)
+                .putInt(VERSION)
+                .putInt(bodyCount)
+                .putInt(ephemeris.coefficientCount())
+                .putInt(0)
+                .putDouble(ephemeris.firstDay())
+                .putDouble(ephemeris.lastDay());
+        for (var b = 0; b < bodyCount; b += 1) {
+            buffer.putDouble(ephemeris.segmentDays(b))
+                    .putInt(ephemeris.segmentCount(b))
+                    .putInt(0);
+            for (var error : ephemeris.maxErrors(BODIES.get(b)))
+                buffer.putDouble(error);
+        }
+        for (var b = 0; b < bodyCount; b += 1) {
+            for (var coefficient : ephemeris.coefficients(b))
+                buffer.putFloat(coefficient);
+        }
+
+        buffer.flip();
+        try (var channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+}
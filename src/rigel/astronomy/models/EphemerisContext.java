@@ -0,0 +1,84 @@
+package rigel.astronomy.models;
+
+import static rigel.astronomy.models.PlanetModel.EARTH;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import rigel.astronomy.Epoch;
+import rigel.astronomy.objects.Moon;
+import rigel.astronomy.objects.Planet;
+import rigel.astronomy.objects.Sun;
+import rigel.coordinates.EclipticToEquatorialConversion;
+
+// The quantities shared by the models of the solar system at a given instant (the conversion,
+// which holds the obliquity of the ecliptic, the Sun and Earth's orbit), computed once and
+// reused by the models evaluated through at(EphemerisContext). The Moon and the planets are also
+// computed once, on first use, so that a context can be shared by several callers.
+public final class EphemerisContext {
+    private final double daysSinceJ2010;
+    private final EclipticToEquatorialConversion eclToEqu;
+    private final Sun sun;
+    private final double earthRadius, earthHeliocentricLon;
+    private Moon moon;
+    private List<Planet> planets;
+
+    public EphemerisContext(ZonedDateTime when) {
+        this(Epoch.julianDate(when));
+    }
+
+    public EphemerisContext(double julianDate) {
+        this(Epoch.J2010.daysUntil(julianDate), new EclipticToEquatorialConversion(julianDate));
+    }
+
+    public EphemerisContext(double daysSinceJ2010, EclipticToEquatorialConversion eclToEqu) {
+        this.daysSinceJ2010 = daysSinceJ2010;
+        this.eclToEqu = eclToEqu;
+        this.sun = SunModel.SUN.at(daysSinceJ2010, eclToEqu);
+
+        var earthTrueAnomaly = EARTH.trueAnomaly(daysSinceJ2010);
+        this.earthRadius = EARTH.radius(earthTrueAnomaly);
+        this.earthHeliocentricLon = EARTH.heliocentricLongitude(earthTrueAnomaly);
+    }
+
+    public double daysSinceJ2010() {
+        return daysSinceJ2010;
+    }
+
+    public EclipticToEquatorialConversion eclipticToEquatorialConversion() {
+        return eclToEqu;
+    }
+
+    public Sun sun() {
+        return sun;
+    }
+
+    public synchronized Moon moon() {
+        if (moon == null)
+            moon = MoonModel.MOON.at(this);
+        return moon;
+    }
+
+    // Returns the planets other than Earth, in the order of PlanetModel.
+    public synchronized List<Planet> planets() {
+        if (planets == null) {
+            var planets = new ArrayList<Planet>(PlanetModel.ALL.size() - 1);
+            for (var planetModel : PlanetModel.ALL) {
+                if (planetModel != EARTH)
+                    planets.add(planetModel.at(this));
+            }
+            this.planets = Collections.unmodifiableList(planets);
+        }
+        return planets;
+    }
+
+    double earthRadius() {
+        return earthRadius;
+    }
+
+    double earthHeliocentricLongitude() {
+        return earthHeliocentricLon;
+    }
+}
@@ -5,6 +5,7 @@ import static rigel.math.Angle.ofDeg;
 import static java.lang.Math.*;
 
 import rigel.astronomy.objects.Moon;
+import rigel.astronomy.objects.Sun;
 import rigel.coordinates.EclipticCoordinates;
 import rigel.coordinates.EclipticToEquatorialConversion;
 import rigel.math.Angle;
@@ -27,8 +28,16 @@ public enum MoonModel implements CelestialObjectModel<Moon> {
 
     @Override
     public Moon at(double daysSinceJ2010, EclipticToEquatorialConversion eclToEqu) {
-        // 1. Sun (we could also obtain the values below by calling the static methods of SunModel).
-        var sun = SUN.at(daysSinceJ2010, eclToEqu);
+        return at(daysSinceJ2010, eclToEqu, SUN.at(daysSinceJ2010, eclToEqu));
+    }
+
+    @Override
+    public Moon at(EphemerisContext context) {
+        return at(context.daysSinceJ2010(), context.eclipticToEquatorialConversion(), context.sun());
+    }
+
+    private Moon at(double daysSinceJ2010, EclipticToEquatorialConversion eclToEqu, Sun sun) {
+        // 1. Sun
         var sunMeanAnomaly = sun.meanAnomaly();
         var sunEclipticLon = sun.eclipticPos().lon();
 
@@ -63,6 +63,18 @@ public enum PlanetModel implements CelestialObjectModel<Planet> {
 
     @Override
     public Planet at(double daysSinceJ2010, EclipticToEquatorialConversion eclToEqu) {
+        var trueAnomalyEarth = EARTH.trueAnomaly(daysSinceJ2010);
+        return at(daysSinceJ2010, eclToEqu, EARTH.radius(trueAnomalyEarth), EARTH.heliocentricLongitude(trueAnomalyEarth));
+    }
+
+    @Override
+    public Planet at(EphemerisContext context) {
+        return at(context.daysSinceJ2010(), context.eclipticToEquatorialConversion(),
+                context.earthRadius(), context.earthHeliocentricLongitude());
+    }
+
+    private Planet at(double daysSinceJ2010, EclipticToEquatorialConversion eclToEqu,
+                      double radiusEarth, double hLonEarth) {
         // 1. Ecliptic position
         var trueAnomaly = trueAnomaly(daysSinceJ2010);
         var radius = radius(trueAnomaly);
@@ -73,10 +85,6 @@ public enum PlanetModel implements CelestialObjectModel<Planet> {
         var l1 = atan2(sinLonDiff * cosOrbitalInclination, cos(hLon - ascNodeLon)) + ascNodeLon;
         var r1 = radius * cos(hLat);
 
-        var trueAnomalyEarth = EARTH.trueAnomaly(daysSinceJ2010);
-        var radiusEarth = EARTH.radius(trueAnomalyEarth);
-        var hLonEarth = EARTH.heliocentricLongitude(trueAnomalyEarth);
-
         var rSinDeltaL = radiusEarth * sin(l1 - hLonEarth);
         var lon = semiMajorAxis < 1d
                 ? PI + hLonEarth + atan2(r1 * sin(hLonEarth - l1), radiusEarth - r1 * cos(hLonEarth - l1))
@@ -96,17 +104,21 @@ public enum PlanetModel implements CelestialObjectModel<Planet> {
         return new Planet(name, eclToEqu.apply(eclPos), (float) angularSize, (float) magnitude);
     }
 
-    // The methods below could also be package-private to make them accessible to tests.
-    private double trueAnomaly(double daysSinceJ2010) {
+    String planetName() {
+        return name;
+    }
+
+    // The methods below are package-private for EphemerisContext.
+    double trueAnomaly(double daysSinceJ2010) {
         var meanAnomaly = angularSpeed * daysSinceJ2010 + epochLon - perihelionLon;
         return meanAnomaly + 2d * eccentricity * sin(meanAnomaly);
     }
 
-    private double radius(double trueAnomaly) {
+    double radius(double trueAnomaly) {
         return semiMajorAxis * (1d - eccentricity * eccentricity) / (1d + eccentricity * cos(trueAnomaly));
     }
 
-    private double heliocentricLongitude(double trueAnomaly) {
+    double heliocentricLongitude(double trueAnomaly) {
         return trueAnomaly + perihelionLon;
     }
 }
@@ -34,6 +34,11 @@ public enum SunModel implements CelestialObjectModel<Sun> {
         return new Sun(eclipticPos, equatorialPos, (float) angularSize, (float) meanAnomaly);
     }
 
+    @Override
+    public Sun at(EphemerisContext context) {
+        return context.sun();
+    }
+
     // The methods below could also be package-private to make them accessible to tests
     // (and to MoonModel).
     private static EclipticCoordinates eclipticPosition(double trueAnomaly) {
@@ -17,6 +17,10 @@ public final class Moon extends CelestialObject {
         this.phase = Preconditions.checkInInterval(PHASE_INTERVAL, phase);
     }
 
+    public double phase() {
+        return phase;
+    }
+
     @Override
     public String info() {
         return String.format(Locale.ROOT, "%s (%.1f%%)", super.info(), 100f * phase);
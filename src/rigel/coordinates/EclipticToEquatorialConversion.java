@@ -6,6 +6,7 @@ import static rigel.astronomy.Epoch.J2000;
 import java.time.ZonedDateTime;
 import java.util.function.Function;
 
+import rigel.astronomy.Epoch;
 import rigel.math.Angle;
 import rigel.math.Polynomial;
 
@@ -20,11 +21,26 @@ public final class EclipticToEquatorialConversion implements Function<EclipticCo
     private final double cosObl, sinObl;
 
     public EclipticToEquatorialConversion(ZonedDateTime when) {
-        var obliquityOfEcliptic = obliquityOfEcliptic(when);
+        this(Epoch.julianDate(when));
+    }
+
+    public EclipticToEquatorialConversion(double julianDate) {
+        var obliquityOfEcliptic = obliquityOfEcliptic(julianDate);
         this.cosObl = cos(obliquityOfEcliptic);
         this.sinObl = sin(obliquityOfEcliptic);
     }
 
+    private EclipticToEquatorialConversion(double cosObl, double sinObl) {
+        this.cosObl = cosObl;
+        this.sinObl = sinObl;
+    }
+
+    // Returns the conversion for the given obliquity; for an obliquity of 0, the "equatorial"
+    // coordinates it computes are the ecliptic ones.
+    public static EclipticToEquatorialConversion ofObliquity(double obliquityOfEcliptic) {
+        return new EclipticToEquatorialConversion(cos(obliquityOfEcliptic), sin(obliquityOfEcliptic));
+    }
+
     @Override
     public EquatorialCoordinates apply(EclipticCoordinates ecl) {
         // PACS4, §27
@@ -34,9 +50,9 @@ public final class EclipticToEquatorialConversion implements Function<EclipticCo
         return EquatorialCoordinates.of(Angle.normalizePositive(ra), dec);
     }
 
-    static double obliquityOfEcliptic(ZonedDateTime when) {
+    static double obliquityOfEcliptic(double julianDate) {
         // PACS4, §27
-        return OBLIQUITY_POLYNOMIAL.at(J2000.julianCenturiesUntil(when));
+        return OBLIQUITY_POLYNOMIAL.at(J2000.julianCenturiesUntil(julianDate));
     }
 
     @Override
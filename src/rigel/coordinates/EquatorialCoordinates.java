@@ -16,6 +16,14 @@ public final class EquatorialCoordinates extends SphericalCoordinates {
     private static final Interval RA_INTERVAL = RightOpenInterval.of(0, TAU);
     private static final Interval DEC_INTERVAL = ClosedInterval.symmetric(PI);
 
+    public static boolean isValidRa(double ra) {
+        return RA_INTERVAL.contains(ra);
+    }
+
+    public static boolean isValidDec(double dec) {
+        return DEC_INTERVAL.contains(dec);
+    }
+
     public static EquatorialCoordinates of(double ra, double dec) {
         return new EquatorialCoordinates(
                 checkInInterval(RA_INTERVAL, ra),
@@ -6,8 +6,10 @@ import static java.lang.Math.cos;
 import static java.lang.Math.sin;
 
 import java.time.ZonedDateTime;
+import java.util.Objects;
 import java.util.function.Function;
 
+import rigel.astronomy.Epoch;
 import rigel.astronomy.SiderealTime;
 import rigel.math.Angle;
 
@@ -16,11 +18,32 @@ public final class EquatorialToHorizontalConversion implements Function<Equatori
     private final double localSiderealTime;
     private final double sinLat;
     private final double cosLat;
+    // Rotation from equatorial unit vectors to horizontal ones, whose coordinates are
+    // (cos(alt)·sin(az), cos(alt)·cos(az), sin(alt)), i.e. towards east, north and zenith.
+    // Rows are obtained by expanding the hour angle H = LST - ra, e.g.
+    // cos(dec)·cos(H) = cos(LST)·x + sin(LST)·y.
+    private final double[] matrix;
 
     public EquatorialToHorizontalConversion(ZonedDateTime when, GeographicCoordinates where) {
-        this.localSiderealTime = SiderealTime.local(when, where);
+        this(Epoch.julianDate(when), where);
+    }
+
+    public EquatorialToHorizontalConversion(double julianDate, GeographicCoordinates where) {
+        this.localSiderealTime = SiderealTime.local(julianDate, where);
         this.sinLat = sin(where.lat());
         this.cosLat = cos(where.lat());
+
+        var sinLst = sin(localSiderealTime);
+        var cosLst = cos(localSiderealTime);
+        this.matrix = new double[]{
+                -sinLst, cosLst, 0,
+                -sinLat * cosLst, -sinLat * sinLst, cosLat,
+                cosLat * cosLst, cosLat * sinLst, sinLat
+        };
+    }
+
+    double[] matrix() {
+        return matrix;
     }
 
     @Override
@@ -33,6 +56,15 @@ public final class EquatorialToHorizontalConversion implements Function<Equatori
         return HorizontalCoordinates.of(az, asin(sinAlt));
     }
 
+    // Converts the equatorial unit vectors (x[i], y[i], z[i]) for i in [from, to[ to horizontal
+    // ones (see matrix), stored in (hx[i], hy[i], hz[i]).
+    public void applyToUnitVectors(double[] x, double[] y, double[] z, int from, int to,
+                                   double[] hx, double[] hy, double[] hz) {
+        Objects.checkFromToIndex(from, to, Math.min(x.length, Math.min(y.length, z.length)));
+        Objects.checkFromToIndex(from, to, Math.min(hx.length, Math.min(hy.length, hz.length)));
+        ProjectionKernel.DEFAULT.rotate(matrix, x, y, z, from, to, hx, hy, hz);
+    }
+
     @Override
     public int hashCode() {
         throw new UnsupportedOperationException();
@@ -0,0 +1,85 @@
+package rigel.coordinates;
+
+import static rigel.Preconditions.checkArgument;
+
+import java.time.ZonedDateTime;
+import java.util.Objects;
+
+import rigel.astronomy.Epoch;
+
+// The composition of EquatorialToHorizontalConversion and StereographicProjection, applied to
+// arrays of coordinates without creating any intermediate object.
+//
+// Both conversions are rotations of the unit vector of a position (see their matrix), so their
+// composition is a single rotation, computed once: it maps the equatorial unit vector of a position to its
+// coordinates (u, v, w) in a frame whose w axis points to the center of the projection, whose
+// u axis points towards increasing azimuths and whose v axis points up. The stereographic
+// projection of the position is then (u / (1 + w), v / (1 + w)).
+//
+// Results are equal to those of the composed functions up to rounding errors: the difference is
+// at most 1e-12·(1 + x² + y²) on each coordinate, the factor accounting for the growth of the
+// projection far from its center. The only exception are observers exactly at a pole, where the
+// azimuth computed by EquatorialToHorizontalConversion is dominated by rounding errors, while the
+// one implied here is the correct limit.
+//
+// The computations are done by a ProjectionKernel, either the scalar one or, if the system
+// property rigel.projection.vector is true and the jdk.incubator.vector module is available, one
+// using SIMD instructions.
+public final class EquatorialToPlaneProjection {
+    // Rows u, v and w of the rotation matrix, in row-major order
+    private final double[] matrix;
+
+    public EquatorialToPlaneProjection(ZonedDateTime when, GeographicCoordinates where, StereographicProjection projection) {
+        this(Epoch.julianDate(when), where, projection);
+    }
+
+    public EquatorialToPlaneProjection(double julianDate, GeographicCoordinates where, StereographicProjection projection) {
+        this.matrix = product(projection.matrix(), new EquatorialToHorizontalConversion(julianDate, where).matrix());
+    }
+
+    private static double[] product(double[] a, double[] b) {
+        var product = new double[9];
+        for (var i = 0; i < 3; i += 1) {
+            for (var j = 0; j < 3; j += 1)
+                product[3 * i + j] = a[3 * i] * b[j] + a[3 * i + 1] * b[3 + j] + a[3 * i + 2] * b[6 + j];
+        }
+        return product;
+    }
+
+    public CartesianCoordinates apply(EquatorialCoordinates equ) {
+        var xy = new double[2];
+        apply(new double[]{equ.ra()}, new double[]{equ.dec()}, 0, 1, xy);
+        return CartesianCoordinates.of(xy[0], xy[1]);
+    }
+
+    // Projects the coordinates (ra[i], dec[i]) for i in [from, to[, and stores the coordinates of
+    // the result in xy[2i] and xy[2i + 1].
+    public void apply(double[] ra, double[] dec, int from, int to, double[] xy) {
+        Objects.checkFromToIndex(from, to, Math.min(ra.length, dec.length));
+        checkArgument(xy.length >= 2 * to);
+        ProjectionKernel.DEFAULT.apply(matrix, ra, dec, from, to, xy);
+    }
+
+    // Projects the equatorial unit vectors (x[i], y[i], z[i]) for i in [from, to[, and stores the
+    // coordinates of the result in xy[2i] and xy[2i + 1]. No trigonometric function is involved.
+    public void applyToUnitVectors(double[] x, double[] y, double[] z, int from, int to, double[] xy) {
+        Objects.checkFromToIndex(from, to, Math.min(x.length, Math.min(y.length, z.length)));
+        checkArgument(xy.length >= 2 * to);
+        ProjectionKernel.DEFAULT.applyToUnitVectors(matrix, x, y, z, from, to, xy);
+    }
+
+    // Package-private, for the benchmark
+    double[] matrix() {
+        return matrix;
+    }
+
+    @Override
+    public int hashCode() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,31 @@
+package rigel.coordinates;
+
+// The per-star computations of the conversions and projections, given a rotation matrix stored in
+// row-major order in m. For projections, its rows are u, v and w (see EquatorialToPlaneProjection).
+interface ProjectionKernel {
+    // Set to true to use the backend based on the jdk.incubator.vector module, when available
+    String VECTOR_PROPERTY = "rigel.projection.vector";
+
+    ProjectionKernel DEFAULT = Boolean.getBoolean(VECTOR_PROPERTY)
+            ? vectorKernel()
+            : ScalarProjectionKernel.INSTANCE;
+
+    void apply(double[] m, double[] ra, double[] dec, int from, int to, double[] xy);
+
+    void applyToUnitVectors(double[] m, double[] x, double[] y, double[] z, int from, int to, double[] xy);
+
+    // Stores m·(x[i], y[i], z[i]) in (mx[i], my[i], mz[i]).
+    void rotate(double[] m, double[] x, double[] y, double[] z, int from, int to, double[] mx, double[] my, double[] mz);
+
+    // Loaded reflectively, as both the class and the module are optional: the class lives in the
+    // src-vector source root, compiled separately with --add-modules jdk.incubator.vector, and the
+    // absence of the module only appears when it is linked.
+    static ProjectionKernel vectorKernel() {
+        try {
+            var kernelClass = Class.forName("rigel.coordinates.VectorProjectionKernel");
+            return (ProjectionKernel) kernelClass.getEnumConstants()[0];
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return ScalarProjectionKernel.INSTANCE;
+        }
+    }
+}
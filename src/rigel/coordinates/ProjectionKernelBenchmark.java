@@ -0,0 +1,144 @@
+package rigel.coordinates;
+
+import static java.lang.Math.*;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import rigel.astronomy.catalogs.HygDatabaseLoader;
+import rigel.astronomy.catalogs.StarCatalogue;
+import rigel.math.Angle;
+
+// Compares the throughput of the scalar and vector projection kernels, for the single-stage path of
+// EquatorialToPlaneProjection and for the two stages of ObservedSky, on the bundled catalogue and
+// on a synthetic one. For the vector kernel to be available, src-vector must be compiled and on
+// the class path, and the benchmark run with --add-modules jdk.incubator.vector.
+// Usage: ProjectionKernelBenchmark [synthetic stars count]
+public final class ProjectionKernelBenchmark {
+    private static final int DEFAULT_SYNTHETIC_STARS = 1_000_000;
+    // Number of stars projected by each kernel before and during the measurements; the vector API
+    // is only efficient once compiled by C2
+    private static final long WARMUP_STARS = 100_000_000;
+    private static final long MEASURED_STARS = 100_000_000;
+
+    private ProjectionKernelBenchmark() {}
+
+    public static void main(String[] args) throws IOException {
+        var syntheticStars = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SYNTHETIC_STARS;
+        var vectorKernel = ProjectionKernel.vectorKernel();
+        if (vectorKernel == ScalarProjectionKernel.INSTANCE)
+            System.out.println("jdk.incubator.vector is not available, only the scalar kernel is measured");
+
+        StarCatalogue catalogue;
+        try (var s = ProjectionKernelBenchmark.class.getResourceAsStream("/hygdata_v3.csv")) {
+            catalogue = new StarCatalogue.Builder()
+                    .loadFrom(s, HygDatabaseLoader.INSTANCE)
+                    .build();
+        }
+        var ra = new double[catalogue.size()];
+        var dec = new double[catalogue.size()];
+        for (var i = 0; i < ra.length; i += 1) {
+            ra[i] = catalogue.ra(i);
+            dec[i] = catalogue.dec(i);
+        }
+        run("bundled", ra, dec, vectorKernel);
+
+        var random = new Random(2020);
+        ra = new double[syntheticStars];
+        dec = new double[syntheticStars];
+        for (var i = 0; i < syntheticStars; i += 1) {
+            ra[i] = random.nextDouble() * Angle.TAU;
+            dec[i] = asin(2 * random.nextDouble() - 1);
+        }
+        run("synthetic", ra, dec, vectorKernel);
+    }
+
+    private static void run(String name, double[] ra, double[] dec, ProjectionKernel vectorKernel) {
+        var n = ra.length;
+        var x = new double[n];
+        var y = new double[n];
+        var z = new double[n];
+        for (var i = 0; i < n; i += 1) {
+            x[i] = cos(dec[i]) * cos(ra[i]);
+            y[i] = cos(dec[i]) * sin(ra[i]);
+            z[i] = sin(dec[i]);
+        }
+        var when = ZonedDateTime.parse("2020-02-17T20:15:00+01:00");
+        var where = GeographicCoordinates.ofDeg(6.57, 46.52);
+        // The matrices of the two stages of ObservedSky: the conversion of the equatorial unit
+        // vectors to horizontal ones, then their projection
+        var conversionMatrix = new EquatorialToHorizontalConversion(when, where).matrix();
+        var projection = new StereographicProjection(HorizontalCoordinates.ofDeg(180, 15));
+        var projectionMatrix = projection.matrix();
+        // The matrix of the single-stage path of EquatorialToPlaneProjection, from right ascensions
+        // and declinations
+        var fusedMatrix = new EquatorialToPlaneProjection(when, where, projection).matrix();
+
+        var kernels = vectorKernel == ScalarProjectionKernel.INSTANCE
+                ? List.<ProjectionKernel>of(ScalarProjectionKernel.INSTANCE)
+                : List.of(ScalarProjectionKernel.INSTANCE, vectorKernel);
+        var warmupRuns = (int) Math.max(1, WARMUP_STARS / n);
+        var measuredRuns = (int) Math.max(1, MEASURED_STARS / n);
+        var reference = new double[5][];
+        for (var kernel : kernels) {
+            var hx = new double[n];
+            var hy = new double[n];
+            var hz = new double[n];
+            var xy = new double[2 * n];
+            var xyRaDec = new double[2 * n];
+            for (var i = 0; i < warmupRuns; i += 1) {
+                kernel.apply(fusedMatrix, ra, dec, 0, n, xyRaDec);
+                kernel.rotate(conversionMatrix, x, y, z, 0, n, hx, hy, hz);
+                kernel.applyToUnitVectors(projectionMatrix, hx, hy, hz, 0, n, xy);
+            }
+            var raDecNanos = 0L;
+            var rotateNanos = 0L;
+            var projectNanos = 0L;
+            for (var i = 0; i < measuredRuns; i += 1) {
+                var t0 = System.nanoTime();
+                kernel.apply(fusedMatrix, ra, dec, 0, n, xyRaDec);
+                var t1 = System.nanoTime();
+                kernel.rotate(conversionMatrix, x, y, z, 0, n, hx, hy, hz);
+                var t2 = System.nanoTime();
+                kernel.applyToUnitVectors(projectionMatrix, hx, hy, hz, 0, n, xy);
+                projectNanos += System.nanoTime() - t2;
+                rotateNanos += t2 - t1;
+                raDecNanos += t1 - t0;
+            }
+
+            var comparison = "";
+            if (reference[0] == null) {
+                reference[0] = hx;
+                reference[1] = hy;
+                reference[2] = hz;
+                reference[3] = xy;
+                reference[4] = xyRaDec;
+            } else {
+                comparison = String.format(Locale.ROOT, "  ra/dec max diff %.1e, two stages identical: %b",
+                        maxDifference(reference[4], xyRaDec),
+                        Arrays.equals(reference[0], hx)
+                                && Arrays.equals(reference[1], hy)
+                                && Arrays.equals(reference[2], hz)
+                                && Arrays.equals(reference[3], xy));
+            }
+            System.out.printf(Locale.ROOT, "%-9s %-22s ra/dec %,14.0f stars/s   conversion %,14.0f stars/s   projection %,14.0f stars/s%s%n",
+                    name,
+                    kernel.getClass().getSimpleName(),
+                    (double) n * measuredRuns / (raDecNanos * 1e-9),
+                    (double) n * measuredRuns / (rotateNanos * 1e-9),
+                    (double) n * measuredRuns / (projectNanos * 1e-9),
+                    comparison);
+        }
+    }
+
+    private static double maxDifference(double[] a, double[] b) {
+        var max = 0d;
+        for (var i = 0; i < a.length; i += 1)
+            max = max(max, abs(a[i] - b[i]) / (1 + a[i] * a[i]));
+        return max;
+    }
+}
@@ -0,0 +1,41 @@
+package rigel.coordinates;
+
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+
+enum ScalarProjectionKernel implements ProjectionKernel {
+    INSTANCE;
+
+    @Override
+    public void apply(double[] m, double[] ra, double[] dec, int from, int to, double[] xy) {
+        for (var i = from; i < to; i += 1) {
+            var cosDec = cos(dec[i]);
+            project(m, cosDec * cos(ra[i]), cosDec * sin(ra[i]), sin(dec[i]), xy, 2 * i);
+        }
+    }
+
+    @Override
+    public void applyToUnitVectors(double[] m, double[] x, double[] y, double[] z, int from, int to, double[] xy) {
+        for (var i = from; i < to; i += 1)
+            project(m, x[i], y[i], z[i], xy, 2 * i);
+    }
+
+    @Override
+    public void rotate(double[] m, double[] x, double[] y, double[] z, int from, int to,
+                       double[] mx, double[] my, double[] mz) {
+        for (var i = from; i < to; i += 1) {
+            var xi = x[i];
+            var yi = y[i];
+            var zi = z[i];
+            mx[i] = m[0] * xi + m[1] * yi + m[2] * zi;
+            my[i] = m[3] * xi + m[4] * yi + m[5] * zi;
+            mz[i] = m[6] * xi + m[7] * yi + m[8] * zi;
+        }
+    }
+
+    static void project(double[] m, double x, double y, double z, double[] xy, int index) {
+        var d = 1d / (m[6] * x + m[7] * y + m[8] * z + 1d);
+        xy[index] = d * (m[0] * x + m[1] * y + m[2] * z);
+        xy[index + 1] = d * (m[3] * x + m[4] * y + m[5] * z);
+    }
+}
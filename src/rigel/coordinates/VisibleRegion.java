@@ -0,0 +1,47 @@
+package rigel.coordinates;
+
+import static java.lang.Math.abs;
+import static rigel.Preconditions.checkArgument;
+
+// The rectangle of the plane of a stereographic projection that is visible, centered on the origin,
+// i.e. the points (x, y) such that |x| <= halfWidth and |y| <= halfHeight.
+public final class VisibleRegion {
+    private final double halfWidth, halfHeight;
+    // The horizontal unit vector of the center of the projection, and the cosine of the angle
+    // between it and the furthest point of the rectangle.
+    private final double centerX, centerY, centerZ;
+    private final double minCos;
+
+    public VisibleRegion(StereographicProjection projection, double halfWidth, double halfHeight) {
+        checkArgument(halfWidth >= 0 && halfHeight >= 0);
+        this.halfWidth = halfWidth;
+        this.halfHeight = halfHeight;
+
+        var m = projection.matrix();
+        this.centerX = m[6];
+        this.centerY = m[7];
+        this.centerZ = m[8];
+        // A point at distance r of the origin is the projection of a point at angle t of the
+        // center such that r = tan(t / 2), hence cos(t) = (1 - r²) / (1 + r²).
+        var r2 = halfWidth * halfWidth + halfHeight * halfHeight;
+        this.minCos = (1d - r2) / (1d + r2);
+    }
+
+    public double halfWidth() {
+        return halfWidth;
+    }
+
+    public double halfHeight() {
+        return halfHeight;
+    }
+
+    // Returns false only if the projection of the given horizontal unit vector is certainly outside
+    // of the region, which is cheaper to check than projecting it.
+    public boolean mayContainUnitVector(double x, double y, double z) {
+        return centerX * x + centerY * y + centerZ * z >= minCos;
+    }
+
+    public boolean contains(double x, double y) {
+        return abs(x) <= halfWidth && abs(y) <= halfHeight;
+    }
+}
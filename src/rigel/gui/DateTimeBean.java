@@ -4,8 +4,10 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.List;
 
 import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 
 public final class DateTimeBean {
@@ -13,14 +15,55 @@ public final class DateTimeBean {
     private final ObjectProperty<LocalTime> time = new SimpleObjectProperty<>();
     private final ObjectProperty<ZoneId> zone = new SimpleObjectProperty<>();
 
+    // The date, time and zone combined (null until all of them are set), which changes only once
+    // per update (see update), so that it never mixes new and old components
+    private final ObjectProperty<ZonedDateTime> zonedDateTime = new SimpleObjectProperty<>();
+    private boolean updating;
+
+    public DateTimeBean() {
+        for (var p : List.of(date, time, zone))
+            p.addListener(o -> updateZonedDateTime());
+    }
+
     public ZonedDateTime getZonedDateTime() {
         return ZonedDateTime.of(getDate(), getTime(), getZone());
     }
 
+    public ReadOnlyObjectProperty<ZonedDateTime> zonedDateTimeProperty() {
+        return zonedDateTime;
+    }
+
     public void setZonedDateTime(ZonedDateTime newZonedDateTime) {
-        setDate(newZonedDateTime.toLocalDate());
-        setTime(newZonedDateTime.toLocalTime());
-        setZone(newZonedDateTime.getZone());
+        update(() -> {
+            setDate(newZonedDateTime.toLocalDate());
+            setTime(newZonedDateTime.toLocalTime());
+            setZone(newZonedDateTime.getZone());
+        });
+    }
+
+    // Runs the given changes of the date, time and zone as a single one: the zoned date time
+    // property is only updated once they are all done.
+    public void update(Runnable changes) {
+        if (updating) {
+            changes.run();
+            return;
+        }
+        updating = true;
+        try {
+            changes.run();
+        } finally {
+            updating = false;
+            updateZonedDateTime();
+        }
+    }
+
+    private void updateZonedDateTime() {
+        if (updating)
+            return;
+        var date = getDate();
+        var time = getTime();
+        var zone = getZone();
+        zonedDateTime.set(date != null && time != null && zone != null ? ZonedDateTime.of(date, time, zone) : null);
     }
 
     public LocalDate getDate() {
@@ -0,0 +1,48 @@
+package rigel.gui;
+
+import javafx.animation.AnimationTimer;
+
+// Coalesces redraw requests: the first request made after a redraw marks the canvas as dirty and
+// the redraw happens at the next pulse, so that the requests made until then (e.g. by several
+// bindings invalidated by the same change) are suppressed. The timer only runs while the canvas
+// is dirty, so that it does not request pulses when nothing changes.
+final class RedrawScheduler extends AnimationTimer {
+    private final Runnable redraw;
+
+    private boolean dirty;
+    private long redrawCount;
+    private long suppressedRedrawCount;
+
+    RedrawScheduler(Runnable redraw) {
+        this.redraw = redraw;
+    }
+
+    // Must be called on the JavaFX thread.
+    void requestRedraw() {
+        if (dirty) {
+            suppressedRedrawCount += 1;
+        } else {
+            dirty = true;
+            start();
+        }
+    }
+
+    long redrawCount() {
+        return redrawCount;
+    }
+
+    long suppressedRedrawCount() {
+        return suppressedRedrawCount;
+    }
+
+    @Override
+    public void handle(long now) {
+        stop();
+        if (dirty) {
+            // Cleared first, so that requests made while redrawing schedule another redraw
+            dirty = false;
+            redrawCount += 1;
+            redraw.run();
+        }
+    }
+}
@@ -9,18 +9,22 @@ import javafx.scene.canvas.Canvas;
 import javafx.scene.input.KeyCode;
 import javafx.scene.transform.NonInvertibleTransformException;
 import javafx.scene.transform.Transform;
+import rigel.astronomy.Epoch;
+import rigel.astronomy.HorizontalSky;
 import rigel.astronomy.ObservedSky;
 import rigel.astronomy.catalogs.StarCatalogue;
 import rigel.astronomy.objects.CelestialObject;
 import rigel.coordinates.CartesianCoordinates;
 import rigel.coordinates.HorizontalCoordinates;
 import rigel.coordinates.StereographicProjection;
+import rigel.coordinates.VisibleRegion;
 import rigel.math.Angle;
 import rigel.math.ClosedInterval;
 import rigel.math.RightOpenInterval;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import static javafx.beans.binding.Bindings.createDoubleBinding;
 import static javafx.beans.binding.Bindings.createObjectBinding;
@@ -31,6 +35,9 @@ public final class SkyCanvasManager {
     private static final ClosedInterval VIEWING_ALT_INTERVAL = ClosedInterval.of(5, 90);
 
     private static final int MAX_OBJECT_DISTANCE = 10;
+    // Objects are culled if they are further than this angle (larger than the disks drawn for
+    // stars and planets) and MAX_OBJECT_DISTANCE from the canvas
+    private static final double CULLING_MARGIN = Angle.ofDeg(1);
 
     private static final Map<KeyCode, int[]> VIEW_DIRECTION_CHANGES = Map.of(
             KeyCode.LEFT, new int[]{-10, 0},
@@ -41,6 +48,9 @@ public final class SkyCanvasManager {
 
     private final Canvas canvas;
     private final SkyCanvasPainter painter;
+    private final RedrawScheduler redrawScheduler;
+    private final ObjectProperty<SkyCanvasPainter.Backend> backend;
+    private final ObjectProperty<SkyCanvasPainter.StarRendering> starRendering;
 
     private final DateTimeBean dateTimeBean;
     private final ObserverLocationBean observerLocationBean;
@@ -48,8 +58,14 @@ public final class SkyCanvasManager {
 
     private final ObservableValue<StereographicProjection> projection;
     private final ObservableValue<Transform> planeToCanvas;
+    private final ObservableValue<VisibleRegion> visibleRegion;
 
-    private final ObservableValue<ObservedSky> observedSky;
+    // The sky is computed in the background by skyComputer, and observedSky is the last one it
+    // handed over, computed for observedSkyProjection (which may lag behind projection)
+    private final ObservableValue<StarCatalogue> starCatalogue;
+    private final SkyComputer skyComputer;
+    private final ObjectProperty<ObservedSky> observedSky;
+    private StereographicProjection observedSkyProjection;
 
     private final ObjectProperty<Point2D> mousePosition;
     private final ObservableValue<HorizontalCoordinates> mouseHorizontalPosition;
@@ -57,15 +73,19 @@ public final class SkyCanvasManager {
     private final ObservableDoubleValue mouseAltDeg;
     private final ObservableValue<CelestialObject> objectUnderMouse;
 
-    public SkyCanvasManager(StarCatalogue starCatalogue,
+    public SkyCanvasManager(ObservableValue<StarCatalogue> starCatalogue,
                             DateTimeBean dateTimeBean,
                             ObserverLocationBean observerLocationBean,
                             ViewingParametersBean viewingParametersBean) {
         this.canvas = new Canvas();
         this.painter = new SkyCanvasPainter(canvas);
+        this.redrawScheduler = new RedrawScheduler(this::drawSky);
+        this.backend = new SimpleObjectProperty<>(painter.getBackend());
+        this.starRendering = new SimpleObjectProperty<>(painter.getStarRendering());
         this.dateTimeBean = dateTimeBean;
         this.observerLocationBean = observerLocationBean;
         this.viewingParametersBean = viewingParametersBean;
+        this.starCatalogue = starCatalogue;
 
         this.mousePosition = new SimpleObjectProperty<>(Point2D.ZERO);
 
@@ -87,17 +107,38 @@ public final class SkyCanvasManager {
                 canvas.widthProperty(),
                 canvas.heightProperty());
 
-        this.observedSky = createObjectBinding(() ->
-                        new ObservedSky(
-                                dateTimeBean.getZonedDateTime(),
-                                observerLocationBean.getCoordinates(),
-                                projection.getValue(),
-                                starCatalogue),
-                dateTimeBean.dateProperty(),
-                dateTimeBean.timeProperty(),
-                dateTimeBean.zoneProperty(),
-                observerLocationBean.coordinatesProperty(),
-                projection);
+        this.visibleRegion = createObjectBinding(() -> {
+                    var projection = this.projection.getValue();
+                    var width = canvas.widthProperty().get();
+                    var height = canvas.heightProperty().get();
+                    var planeWidth = projection.applyToAngle(Angle.ofDeg(viewingParametersBean.getFieldOfViewDeg()));
+                    var margin = projection.applyToAngle(CULLING_MARGIN)
+                            + (width > 0 ? planeWidth * MAX_OBJECT_DISTANCE / width : 0);
+                    var aspectRatio = width > 0 ? height / width : 0;
+                    return new VisibleRegion(projection, planeWidth / 2 + margin, planeWidth * aspectRatio / 2 + margin);
+                },
+                viewingParametersBean.fieldOfViewDegProperty(),
+                projection,
+                canvas.widthProperty(),
+                canvas.heightProperty());
+
+        // The first sky is computed synchronously, so that there is always one to draw. Panning
+        // and zooming only change the projection, so the computer keeps the horizontal sky (which
+        // depends on the time and location only) and only projects it again.
+        this.observedSkyProjection = projection.getValue();
+        this.observedSky = new SimpleObjectProperty<>(new ObservedSky(
+                new HorizontalSky(
+                        Epoch.julianDate(dateTimeBean.getZonedDateTime()),
+                        observerLocationBean.getCoordinates(),
+                        starCatalogue.getValue(),
+                        ForkJoinPool.commonPool()),
+                observedSkyProjection,
+                visibleRegion.getValue(),
+                ForkJoinPool.commonPool()));
+        this.skyComputer = new SkyComputer(ForkJoinPool.commonPool(), (sky, projection) -> {
+            observedSkyProjection = projection;
+            observedSky.set(sky);
+        });
 
         this.mouseHorizontalPosition = createObjectBinding(() -> {
                     try {
@@ -173,21 +214,43 @@ public final class SkyCanvasManager {
         // Mouse movement listeners (to display information)
         canvas.setOnMouseMoved(e -> mousePosition.set(new Point2D(e.getX(), e.getY())));
 
-        // "Data" listeners (to redraw the sky)
-        for (var p: List.of(observedSky, planeToCanvas)) {
-            p.addListener(o -> {
-                var observedSky = this.observedSky.getValue();
-                var projection = this.projection.getValue();
-                var planeToCanvas = this.planeToCanvas.getValue();
-
-                painter.clear();
-                painter.drawStars(observedSky, projection, planeToCanvas);
-                painter.drawPlanets(observedSky, projection, planeToCanvas);
-                painter.drawSun(observedSky, projection, planeToCanvas);
-                painter.drawMoon(observedSky, projection, planeToCanvas);
-                painter.drawHorizon(projection, planeToCanvas);
-            });
+        // "Sky" listeners (to compute the sky in the background)
+        for (var p: List.of(
+                dateTimeBean.zonedDateTimeProperty(),
+                observerLocationBean.coordinatesProperty(),
+                starCatalogue,
+                visibleRegion)) {
+            p.addListener(o -> requestSky());
         }
+
+        // "Data" listeners (to redraw the sky, at most once per pulse)
+        for (var p: List.of(observedSky, planeToCanvas, backend, starRendering))
+            p.addListener(o -> redrawScheduler.requestRedraw());
+    }
+
+    private void drawSky() {
+        var observedSky = this.observedSky.get();
+        var projection = observedSkyProjection;
+        var planeToCanvas = this.planeToCanvas.getValue();
+
+        painter.setBackend(backend.get());
+        painter.setStarRendering(starRendering.get());
+        painter.clear();
+        painter.drawStars(observedSky, projection, planeToCanvas);
+        painter.drawPlanets(observedSky, projection, planeToCanvas);
+        painter.drawSun(observedSky, projection, planeToCanvas);
+        painter.drawMoon(observedSky, projection, planeToCanvas);
+        painter.flush();
+        painter.drawHorizon(projection, planeToCanvas);
+    }
+
+    private void requestSky() {
+        skyComputer.request(
+                Epoch.julianDate(dateTimeBean.zonedDateTimeProperty().get()),
+                observerLocationBean.getCoordinates(),
+                starCatalogue.getValue(),
+                projection.getValue(),
+                visibleRegion.getValue());
     }
 
     public Canvas canvas() {
@@ -206,6 +269,16 @@ public final class SkyCanvasManager {
         return viewingParametersBean;
     }
 
+    // The backend with which the sky is drawn (see SkyCanvasPainter)
+    public ObjectProperty<SkyCanvasPainter.Backend> backendProperty() {
+        return backend;
+    }
+
+    // The way stars are drawn with the GRAPHICS_CONTEXT backend (see SkyCanvasPainter)
+    public ObjectProperty<SkyCanvasPainter.StarRendering> starRenderingProperty() {
+        return starRendering;
+    }
+
     public ObservableDoubleValue mouseAzDegProperty() {
         return mouseAzDeg;
     }
@@ -217,4 +290,14 @@ public final class SkyCanvasManager {
     public ObservableValue<CelestialObject> objectUnderMouseProperty() {
         return objectUnderMouse;
     }
+
+    // The number of times the sky was drawn, and of redraws which were suppressed because the sky
+    // was already going to be drawn at the next pulse.
+    public long redrawCount() {
+        return redrawScheduler.redrawCount();
+    }
+
+    public long suppressedRedrawCount() {
+        return redrawScheduler.suppressedRedrawCount();
+    }
 }
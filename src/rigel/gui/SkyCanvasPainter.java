@@ -4,6 +4,8 @@ import javafx.geometry.Point2D;
 import javafx.geometry.VPos;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
 import javafx.scene.text.TextAlignment;
 import javafx.scene.transform.Transform;
@@ -13,44 +15,128 @@ import rigel.coordinates.StereographicProjection;
 import rigel.math.Angle;
 import rigel.math.ClosedInterval;
 
+import java.util.concurrent.ForkJoinPool;
+
 public final class SkyCanvasPainter {
     private static final ClosedInterval MAGNITUDE_INTERVAL = ClosedInterval.of(-2, 5);
-    private static final double MAX_ANGLE_FOR_MAGNITUDE = Angle.ofDeg(0.5d);
+    static final double MAX_ANGLE_FOR_MAGNITUDE = Angle.ofDeg(0.5d);
+    // The step to which maximal diameters are rounded before star sprites or kernels are built for
+    // them, so that they are not rebuilt for changes of a fraction of a pixel
+    private static final double MAX_DIAMETER_STEP = 1d / 8;
     private static final Color SUN_HALO_COLOR = Color.YELLOW.deriveColor(0, 1, 1, 0.25);
 
+    public enum Backend {
+        // Objects are drawn with the graphics context of the canvas
+        GRAPHICS_CONTEXT,
+        // Stars, planets, the Sun and the Moon are rasterised by a SkyRasterizer, whose pixels are
+        // drawn on the canvas by flush
+        RASTER
+    }
+
+    public enum StarRendering {
+        // Each star is filled as an oval of its exact diameter and color (the default)
+        DISKS,
+        // Each star is drawn from a StarSpriteAtlas, with a quantised diameter and color
+        SPRITE_ATLAS
+    }
+
     private final Canvas canvas;
     private final GraphicsContext ctx;
+    // Scratch buffers for the positions of the objects, reused from one frame to the next
+    private double[] starPositions = new double[0];
+    private double[] planetPositions = new double[0];
+
+    private Backend backend = Backend.GRAPHICS_CONTEXT;
+    // Only used with the RASTER backend, and reallocated when the size of the canvas changes
+    private SkyRasterizer rasterizer;
+    private WritableImage rasterImage;
+
+    private StarRendering starRendering = StarRendering.DISKS;
+    // Regenerated only when the rounded maximal diameter of the stars changes (i.e. when zooming)
+    private StarSpriteAtlas starSpriteAtlas;
 
     public SkyCanvasPainter(Canvas canvas) {
         this.canvas = canvas;
         this.ctx = canvas.getGraphicsContext2D();
     }
 
+    public Backend getBackend() {
+        return backend;
+    }
+
+    public void setBackend(Backend backend) {
+        this.backend = backend;
+        if (backend != Backend.RASTER) {
+            rasterizer = null;
+            rasterImage = null;
+        }
+    }
+
+    public StarRendering getStarRendering() {
+        return starRendering;
+    }
+
+    public void setStarRendering(StarRendering starRendering) {
+        this.starRendering = starRendering;
+    }
+
     public void clear() {
         ctx.setFill(Color.BLACK);
         ctx.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+        if (backend == Backend.RASTER) {
+            var width = (int) Math.ceil(canvas.getWidth());
+            var height = (int) Math.ceil(canvas.getHeight());
+            if (width <= 0 || height <= 0) {
+                rasterizer = null;
+            } else {
+                if (rasterizer == null || rasterizer.width() != width || rasterizer.height() != height) {
+                    rasterizer = new SkyRasterizer(width, height, ForkJoinPool.commonPool());
+                    rasterImage = new WritableImage(width, height);
+                }
+                rasterizer.clear();
+            }
+        }
+    }
+
+    // Draws the objects rasterised since the last clear on the canvas, with the RASTER backend,
+    // with a single transfer of their pixels. Objects drawn afterwards are drawn on top of them.
+    public void flush() {
+        if (backend != Backend.RASTER || rasterizer == null)
+            return;
+        var width = rasterizer.width();
+        var height = rasterizer.height();
+        var pixels = rasterizer.render();
+        rasterImage.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        ctx.drawImage(rasterImage, 0, 0);
     }
 
     public void drawStars(ObservedSky observedSky, StereographicProjection projection, Transform planeToCanvas) {
-        var stars = observedSky.stars();
-        var starPos = observedSky.starPositions();
-        planeToCanvas.transform2DPoints(starPos, 0, starPos, 0, stars.size());
+        if (backend == Backend.RASTER) {
+            if (rasterizer != null)
+                rasterizer.drawStars(observedSky, projection, planeToCanvas);
+            return;
+        }
+
+        var starCount = observedSky.starCount();
+        starPositions = observedSky.starPositions(starPositions);
+        var starPos = starPositions;
+        planeToCanvas.transform2DPoints(starPos, 0, starPos, 0, starCount);
 
         // Asterisms
         ctx.setStroke(Color.BLUE);
         ctx.setLineWidth(1);
         var visibleBounds = canvas.getBoundsInLocal();
-        for (var asterism : observedSky.asterisms()) {
-            var starIndices = observedSky.asterismIndices(asterism);
-
-            var starIndex0 = starIndices.get(0);
+        for (var a = 0; a < observedSky.asterismCount(); a += 1) {
+            var starIndex0 = observedSky.asterismStarIndex(a, 0);
             var x0 = starPos[2 * starIndex0];
             var y0 = starPos[2 * starIndex0 + 1];
             var previousVisible = visibleBounds.contains(x0, y0);
 
             ctx.beginPath();
             ctx.moveTo(x0, y0);
-            for (var starIndex : starIndices.subList(1, starIndices.size())) {
+            for (var i = 1; i < observedSky.asterismSize(a); i += 1) {
+                var starIndex = observedSky.asterismStarIndex(a, i);
                 var x = starPos[2 * starIndex];
                 var y = starPos[2 * starIndex + 1];
                 var currentVisible = visibleBounds.contains(x, y);
@@ -66,32 +152,55 @@ public final class SkyCanvasPainter {
 
         // Stars
         var maxDiameter = apparentDiameter(MAX_ANGLE_FOR_MAGNITUDE, projection, planeToCanvas);
-        var i = 0;
-        for (var star : stars) {
-            var x = starPos[i++];
-            var y = starPos[i++];
-            var d = diameterScaleFactor(star.magnitude()) * maxDiameter;
-            var c = BlackBodyColor.colorForTemperature(star.colorTemperature());
-            drawDisk(x, y, d, c);
+        var useAtlas = starRendering == StarRendering.SPRITE_ATLAS;
+        if (useAtlas) {
+            var atlasMaxDiameter = roundMaxDiameter(maxDiameter);
+            if (starSpriteAtlas == null || starSpriteAtlas.maxDiameter() != atlasMaxDiameter)
+                starSpriteAtlas = new StarSpriteAtlas(atlasMaxDiameter);
+        }
+        for (var j = 0; j < observedSky.visibleStarCount(); j += 1) {
+            var i = observedSky.visibleStarIndex(j);
+            var x = starPos[2 * i];
+            var y = starPos[2 * i + 1];
+            var d = diameterScaleFactor(observedSky.starMagnitude(i)) * maxDiameter;
+            if (useAtlas) {
+                starSpriteAtlas.draw(ctx, x, y, d, observedSky.starColorTemperature(i));
+            } else {
+                var c = BlackBodyColor.colorForTemperature(observedSky.starColorTemperature(i));
+                drawDisk(x, y, d, c);
+            }
         }
     }
 
     public void drawPlanets(ObservedSky observedSky, StereographicProjection projection, Transform planeToCanvas) {
+        if (backend == Backend.RASTER) {
+            if (rasterizer != null)
+                rasterizer.drawPlanets(observedSky, projection, planeToCanvas);
+            return;
+        }
+
         var planets = observedSky.planets();
-        var planetsPos = observedSky.planetPositions();
+        planetPositions = observedSky.planetPositions(planetPositions);
+        var planetsPos = planetPositions;
         planeToCanvas.transform2DPoints(planetsPos, 0, planetsPos, 0, planets.size());
 
         var maxDiameter = apparentDiameter(MAX_ANGLE_FOR_MAGNITUDE, projection, planeToCanvas);
-        var i = 0;
-        for (var planet : planets) {
-            var x = planetsPos[i++];
-            var y = planetsPos[i++];
-            var d = diameterScaleFactor(planet.magnitude()) * maxDiameter;
+        for (var j = 0; j < observedSky.visiblePlanetCount(); j += 1) {
+            var i = observedSky.visiblePlanetIndex(j);
+            var x = planetsPos[2 * i];
+            var y = planetsPos[2 * i + 1];
+            var d = diameterScaleFactor(planets.get(i).magnitude()) * maxDiameter;
             drawDisk(x, y, d, Color.LIGHTGRAY);
         }
     }
 
     public void drawSun(ObservedSky observedSky, StereographicProjection projection, Transform planeToCanvas) {
+        if (backend == Backend.RASTER) {
+            if (rasterizer != null)
+                rasterizer.drawSun(observedSky, projection, planeToCanvas);
+            return;
+        }
+
         var sunDiameter = apparentDiameter(observedSky.sun().angularSize(), projection, planeToCanvas);
         var sunPlanePos = observedSky.sunPosition();
         var sunCenter = planeToCanvas.transform(sunPlanePos.x(), sunPlanePos.y());
@@ -101,6 +210,12 @@ public final class SkyCanvasPainter {
     }
 
     public void drawMoon(ObservedSky observedSky, StereographicProjection projection, Transform planeToCanvas) {
+        if (backend == Backend.RASTER) {
+            if (rasterizer != null)
+                rasterizer.drawMoon(observedSky, projection, planeToCanvas);
+            return;
+        }
+
         var moonDiameter = apparentDiameter(observedSky.moon().angularSize(), projection, planeToCanvas);
         var moonPlanePos = observedSky.moonPosition();
         var moonCenter = planeToCanvas.transform(moonPlanePos.x(), moonPlanePos.y());
@@ -131,12 +246,16 @@ public final class SkyCanvasPainter {
         }
     }
 
-    private static double apparentDiameter(double angularSize, StereographicProjection projection, Transform planeToCanvas) {
+    static double apparentDiameter(double angularSize, StereographicProjection projection, Transform planeToCanvas) {
         var planeSize = projection.applyToAngle(angularSize);
         return planeToCanvas.deltaTransform(planeSize, 0).getX();
     }
 
-    private static double diameterScaleFactor(double magnitude) {
+    static double roundMaxDiameter(double maxDiameter) {
+        return Math.rint(maxDiameter / MAX_DIAMETER_STEP) * MAX_DIAMETER_STEP;
+    }
+
+    static double diameterScaleFactor(double magnitude) {
         var m1 = MAGNITUDE_INTERVAL.clip(magnitude);
         return (99d - 17d * m1) / 140d;
     }
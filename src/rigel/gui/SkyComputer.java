@@ -0,0 +1,133 @@
+package rigel.gui;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+
+import javafx.application.Platform;
+import rigel.astronomy.HorizontalSky;
+import rigel.astronomy.ObservedSky;
+import rigel.astronomy.catalogs.StarCatalogue;
+import rigel.coordinates.GeographicCoordinates;
+import rigel.coordinates.StereographicProjection;
+import rigel.coordinates.VisibleRegion;
+
+// Computes observed skies on a background thread, so that the JavaFX thread never waits for the
+// stars to be converted and projected. Requests are made, and skies handed over, on the JavaFX
+// thread: at most one sky is computed at a time, and when it is done only the latest request made
+// in the meantime is computed, the others being dropped.
+//
+// The star positions are written in two arrays, swapped at each hand-over: the one of the sky
+// which was handed over last, and the one in which the next sky is computed.
+final class SkyComputer {
+    private final ForkJoinPool pool;
+    private final BiConsumer<ObservedSky, StereographicProjection> consumer;
+    private final ExecutorService worker;
+
+    // Accessed on the JavaFX thread only
+    private Request pendingRequest;
+    private boolean computing;
+    private double[] frontBuffer;
+    private double[] backBuffer;
+
+    // Accessed on the worker thread only: the last horizontal sky, kept as long as only the
+    // projection changes
+    private HorizontalSky horizontalSky;
+
+    // Each sky is given to the consumer on the JavaFX thread, with the projection it was computed
+    // for; its stars are converted and projected in parallel in the given pool, unless it is null.
+    SkyComputer(ForkJoinPool pool, BiConsumer<ObservedSky, StereographicProjection> consumer) {
+        this.pool = pool;
+        this.consumer = consumer;
+        this.worker = Executors.newSingleThreadExecutor(r -> {
+            var thread = new Thread(r, "sky-computer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Must be called on the JavaFX thread.
+    void request(double julianDate, GeographicCoordinates where, StarCatalogue starCatalogue,
+                 StereographicProjection projection, VisibleRegion region) {
+        pendingRequest = new Request(julianDate, where, starCatalogue, projection, region);
+        if (!computing)
+            submitPendingRequest();
+    }
+
+    private void submitPendingRequest() {
+        var request = pendingRequest;
+        var buffer = backBuffer;
+        pendingRequest = null;
+        backBuffer = null;
+        computing = true;
+        worker.execute(() -> {
+            try {
+                var result = compute(request, buffer);
+                Platform.runLater(() -> handOver(result));
+            } catch (RuntimeException | Error e) {
+                Platform.runLater(() -> {
+                    // The failed request is dropped, but the ones made in the meantime are still
+                    // computed, before the exception is reported
+                    computing = false;
+                    if (pendingRequest != null)
+                        submitPendingRequest();
+                    throw e;
+                });
+            }
+        });
+    }
+
+    private Result compute(Request request, double[] buffer) {
+        if (horizontalSky == null
+                || horizontalSky.julianDate() != request.julianDate
+                || horizontalSky.where() != request.where
+                || horizontalSky.starCatalogue() != request.starCatalogue) {
+            horizontalSky = new HorizontalSky(request.julianDate, request.where, request.starCatalogue, pool);
+        }
+        var size = 2 * request.starCatalogue.size();
+        if (buffer == null || buffer.length != size)
+            buffer = new double[size];
+        var sky = new ObservedSky(horizontalSky, request.projection, request.region, pool, buffer);
+        return new Result(sky, request.projection, buffer);
+    }
+
+    private void handOver(Result result) {
+        // The previous sky is not used anymore, so its array can be overwritten by the next one
+        backBuffer = frontBuffer;
+        frontBuffer = result.starPositions;
+        computing = false;
+        consumer.accept(result.sky, result.projection);
+        if (pendingRequest != null)
+            submitPendingRequest();
+    }
+
+    private static final class Request {
+        final double julianDate;
+        final GeographicCoordinates where;
+        final StarCatalogue starCatalogue;
+        final StereographicProjection projection;
+        final VisibleRegion region;
+
+        Request(double julianDate, GeographicCoordinates where, StarCatalogue starCatalogue,
+                StereographicProjection projection, VisibleRegion region) {
+            this.julianDate = julianDate;
+            this.where = where;
+            this.starCatalogue = starCatalogue;
+            this.projection = projection;
+            this.region = region;
+        }
+    }
+
+    private static final class Result {
+        final ObservedSky sky;
+        final StereographicProjection projection;
+        final double[] starPositions;
+
+        Result(ObservedSky sky, StereographicProjection projection, double[] starPositions) {
+            this.sky = sky;
+            this.projection = projection;
+            this.starPositions = starPositions;
+        }
+    }
+}
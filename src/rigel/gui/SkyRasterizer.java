@@ -0,0 +1,417 @@
+package rigel.gui;
+
+import static java.lang.Math.*;
+import static rigel.Preconditions.checkArgument;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Transform;
+import rigel.ParallelRanges;
+import rigel.astronomy.ObservedSky;
+import rigel.coordinates.StereographicProjection;
+
+// Rasterises observed skies in software into an array of opaque ARGB pixels, as an alternative
+// to SkyCanvasPainter, whose per-call overhead dominates when drawing thousands of tiny disks. It
+// needs neither a JavaFX scene nor a running JavaFX toolkit.
+//
+// The objects drawn since the last clear are only collected, and rasterised by render. Their
+// colors are added to the ones of the pixels, saturating at white, so that the order in which
+// they are rasterised does not matter and bands of rows can be rasterised in parallel. Stars and
+// planets are Gaussian point-spread functions, whose full width at half maximum is the diameter
+// of the disks drawn by SkyCanvasPainter, and which spread as much light as these disks.
+public final class SkyRasterizer {
+    private static final int BAND_ROWS = 16;
+
+    // Point-spread kernels are precomputed for diameters quantised uniformly between 0 and the
+    // maximal diameter, and for positions quantised to a fraction of a pixel
+    private static final int DIAMETER_BUCKETS = 24;
+    private static final int PHASES = 4;
+    // Kernels are integrated over pixels with this number of samples per pixel
+    private static final int KERNEL_SAMPLES = 8;
+    // The full width at half maximum of a Gaussian, in standard deviations
+    private static final double FWHM_SIGMAS = 2d * sqrt(2d * log(2d));
+    // The peak intensity for which a Gaussian spreads as much light as a disk whose diameter is its
+    // full width at half maximum
+    private static final double PEAK = FWHM_SIGMAS * FWHM_SIGMAS / 8d;
+
+    private static final double SUN_HALO_OPACITY = 0.25;
+
+    private final int width, height;
+    private final ForkJoinPool pool;
+    private final int[] pixels;
+
+    // The objects drawn since the last clear
+    private final PrimitiveList points = new PrimitiveList(6);    // x, y, diameter bucket, r, g, b
+    private final PrimitiveList disks = new PrimitiveList(6);     // x, y, diameter, r, g, b
+    private final PrimitiveList segments = new PrimitiveList(7);  // x0, y0, x1, y1, r, g, b
+
+    // kernels[b][p] is the kernel of diameter bucket b for positions in the phase p of a pixel,
+    // computed for kernelsMaxDiameter, the rounded maximal diameter (see SkyCanvasPainter)
+    private double kernelsMaxDiameter = Double.NaN;
+    private float[][][] kernels;
+
+    // Scratch buffers for the positions of the objects, reused from one frame to the next
+    private double[] starPositions = new double[0];
+    private double[] planetPositions = new double[0];
+
+    // Bands of rows are rasterised in parallel in the given pool, unless it is null.
+    public SkyRasterizer(int width, int height, ForkJoinPool pool) {
+        checkArgument(width > 0 && height > 0);
+        this.width = width;
+        this.height = height;
+        this.pool = pool;
+        this.pixels = new int[width * height];
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public void clear() {
+        points.clear();
+        disks.clear();
+        segments.clear();
+    }
+
+    public void drawStars(ObservedSky observedSky, StereographicProjection projection, Transform planeToCanvas) {
+        var starCount = observedSky.starCount();
+        starPositions = observedSky.starPositions(starPositions);
+        var starPos = starPositions;
+        planeToCanvas.transform2DPoints(starPos, 0, starPos, 0, starCount);
+
+        // Asterisms, whose lines are drawn if one of their ends is in the image (as SkyCanvasPainter does)
+        for (var a = 0; a < observedSky.asterismCount(); a += 1) {
+            var starIndex0 = observedSky.asterismStarIndex(a, 0);
+            var x0 = starPos[2 * starIndex0];
+            var y0 = starPos[2 * starIndex0 + 1];
+            var previousVisible = contains(x0, y0);
+            for (var i = 1; i < observedSky.asterismSize(a); i += 1) {
+                var starIndex = observedSky.asterismStarIndex(a, i);
+                var x = starPos[2 * starIndex];
+                var y = starPos[2 * starIndex + 1];
+                var currentVisible = contains(x, y);
+                if (previousVisible || currentVisible)
+                    addSegment(x0, y0, x, y, Color.BLUE);
+                x0 = x;
+                y0 = y;
+                previousVisible = currentVisible;
+            }
+        }
+
+        // Stars
+        var maxDiameter = SkyCanvasPainter.apparentDiameter(SkyCanvasPainter.MAX_ANGLE_FOR_MAGNITUDE, projection, planeToCanvas);
+        updateKernels(SkyCanvasPainter.roundMaxDiameter(maxDiameter));
+        for (var j = 0; j < observedSky.visibleStarCount(); j += 1) {
+            var i = observedSky.visibleStarIndex(j);
+            var d = SkyCanvasPainter.diameterScaleFactor(observedSky.starMagnitude(i)) * maxDiameter;
+            var color = BlackBodyColor.colorForTemperature(observedSky.starColorTemperature(i));
+            addPoint(starPos[2 * i], starPos[2 * i + 1], d, color);
+        }
+    }
+
+    public void drawPlanets(ObservedSky observedSky, StereographicProjection projection, Transform planeToCanvas) {
+        var planets = observedSky.planets();
+        planetPositions = observedSky.planetPositions(planetPositions);
+        var planetsPos = planetPositions;
+        planeToCanvas.transform2DPoints(planetsPos, 0, planetsPos, 0, planets.size());
+
+        var maxDiameter = SkyCanvasPainter.apparentDiameter(SkyCanvasPainter.MAX_ANGLE_FOR_MAGNITUDE, projection, planeToCanvas);
+        updateKernels(SkyCanvasPainter.roundMaxDiameter(maxDiameter));
+        for (var j = 0; j < observedSky.visiblePlanetCount(); j += 1) {
+            var i = observedSky.visiblePlanetIndex(j);
+            var d = SkyCanvasPainter.diameterScaleFactor(planets.get(i).magnitude()) * maxDiameter;
+            addPoint(planetsPos[2 * i], planetsPos[2 * i + 1], d, Color.LIGHTGRAY);
+        }
+    }
+
+    public void drawSun(ObservedSky observedSky, StereographicProjection projection, Transform planeToCanvas) {
+        var sunDiameter = SkyCanvasPainter.apparentDiameter(observedSky.sun().angularSize(), projection, planeToCanvas);
+        var sunPlanePos = observedSky.sunPosition();
+        var sunCenter = planeToCanvas.transform(sunPlanePos.x(), sunPlanePos.y());
+        addDisk(sunCenter.getX(), sunCenter.getY(), sunDiameter * 2.2, Color.YELLOW, SUN_HALO_OPACITY);
+        addDisk(sunCenter.getX(), sunCenter.getY(), sunDiameter + 2, Color.YELLOW, 1);
+        addDisk(sunCenter.getX(), sunCenter.getY(), sunDiameter, Color.WHITE, 1);
+    }
+
+    public void drawMoon(ObservedSky observedSky, StereographicProjection projection, Transform planeToCanvas) {
+        var moonDiameter = SkyCanvasPainter.apparentDiameter(observedSky.moon().angularSize(), projection, planeToCanvas);
+        var moonPlanePos = observedSky.moonPosition();
+        var moonCenter = planeToCanvas.transform(moonPlanePos.x(), moonPlanePos.y());
+        addDisk(moonCenter.getX(), moonCenter.getY(), moonDiameter, Color.WHITE, 1);
+    }
+
+    // Rasterises the objects drawn since the last clear on a black background, and returns the
+    // pixels, row by row from the top. The array is reused by the next call.
+    public int[] render() {
+        var bandCount = (height + BAND_ROWS - 1) / BAND_ROWS;
+        // Each band only visits the primitives which overlap it
+        segments.bin(bandCount);
+        points.bin(bandCount);
+        disks.bin(bandCount);
+        ParallelRanges.forEachRange(bandCount, 1, pool, (from, to) -> {
+            for (var b = from; b < to; b += 1)
+                renderBand(b);
+        });
+        return pixels;
+    }
+
+    private boolean contains(double x, double y) {
+        return 0 <= x && x <= width && 0 <= y && y <= height;
+    }
+
+    // Stores the components of the given color, times the given opacity, in [0, 255], at the
+    // given index of values.
+    private static void putColor(Color color, double opacity, double[] values, int index) {
+        values[index] = color.getRed() * 255 * opacity;
+        values[index + 1] = color.getGreen() * 255 * opacity;
+        values[index + 2] = color.getBlue() * 255 * opacity;
+    }
+
+    private void addPoint(double x, double y, double diameter, Color color) {
+        var bucket = kernelsMaxDiameter > 0
+                ? max(0, min((int) round(diameter / kernelsMaxDiameter * (DIAMETER_BUCKETS - 1)), DIAMETER_BUCKETS - 1))
+                : 0;
+        if (bucket == 0)
+            return;
+        var radius = kernels[bucket][0].length / 2;
+        var o = points.add(y - radius - 1, y + radius + 1);
+        points.values[o] = x;
+        points.values[o + 1] = y;
+        points.values[o + 2] = bucket;
+        putColor(color, 1, points.values, o + 3);
+    }
+
+    private void addDisk(double x, double y, double diameter, Color color, double opacity) {
+        var o = disks.add(y - diameter / 2d - 1, y + diameter / 2d + 1);
+        disks.values[o] = x;
+        disks.values[o + 1] = y;
+        disks.values[o + 2] = diameter;
+        putColor(color, opacity, disks.values, o + 3);
+    }
+
+    private void addSegment(double x0, double y0, double x1, double y1, Color color) {
+        var o = segments.add(min(y0, y1) - 1, max(y0, y1) + 1);
+        segments.values[o] = x0;
+        segments.values[o + 1] = y0;
+        segments.values[o + 2] = x1;
+        segments.values[o + 3] = y1;
+        putColor(color, 1, segments.values, o + 4);
+    }
+
+    private void updateKernels(double maxDiameter) {
+        if (maxDiameter == kernelsMaxDiameter)
+            return;
+        kernels = new float[DIAMETER_BUCKETS][PHASES][];
+        for (var b = 0; b < DIAMETER_BUCKETS; b += 1) {
+            var sigma = maxDiameter * b / (DIAMETER_BUCKETS - 1) / FWHM_SIGMAS;
+            var radius = (int) ceil(3 * sigma) + 1;
+            for (var p = 0; p < PHASES; p += 1) {
+                // The kernel of element u covers the pixel at offset u - radius from the one of
+                // the center, which lies at (p + 1/2) / PHASES in its pixel
+                var center = (p + 0.5) / PHASES;
+                var kernel = new float[2 * radius + 1];
+                for (var u = 0; u < kernel.length; u += 1) {
+                    var sum = 0d;
+                    for (var s = 0; s < KERNEL_SAMPLES; s += 1) {
+                        var d = u - radius + (s + 0.5) / KERNEL_SAMPLES - center;
+                        sum += sigma > 0 ? exp(-d * d / (2 * sigma * sigma)) : 0;
+                    }
+                    kernel[u] = (float) (sum / KERNEL_SAMPLES);
+                }
+                kernels[b][p] = kernel;
+            }
+        }
+        kernelsMaxDiameter = maxDiameter;
+    }
+
+    private void renderBand(int band) {
+        var rowFrom = band * BAND_ROWS;
+        var rowTo = min(rowFrom + BAND_ROWS, height);
+        Arrays.fill(pixels, rowFrom * width, rowTo * width, 0xFF000000);
+        for (var k = segments.bandOffsets[band]; k < segments.bandOffsets[band + 1]; k += 1)
+            renderSegment(segments.values, segments.bandPrimitives[k] * segments.stride, rowFrom, rowTo);
+        for (var k = points.bandOffsets[band]; k < points.bandOffsets[band + 1]; k += 1)
+            renderPoint(points.values, points.bandPrimitives[k] * points.stride, rowFrom, rowTo);
+        for (var k = disks.bandOffsets[band]; k < disks.bandOffsets[band + 1]; k += 1)
+            renderDisk(disks.values, disks.bandPrimitives[k] * disks.stride, rowFrom, rowTo);
+    }
+
+    private void renderPoint(double[] v, int o, int rowFrom, int rowTo) {
+        var x = v[o];
+        var y = v[o + 1];
+        var bucketKernels = kernels[(int) v[o + 2]];
+        var radius = bucketKernels[0].length / 2;
+        if (!(y + radius + 1 >= rowFrom && y - radius - 1 < rowTo && x + radius + 1 >= 0 && x - radius - 1 < width))
+            return;
+
+        var ix = (int) floor(x);
+        var iy = (int) floor(y);
+        var kx = bucketKernels[min((int) ((x - ix) * PHASES), PHASES - 1)];
+        var ky = bucketKernels[min((int) ((y - iy) * PHASES), PHASES - 1)];
+        var vFrom = max(-radius, rowFrom - iy);
+        var vTo = min(radius, rowTo - 1 - iy);
+        var uFrom = max(-radius, -ix);
+        var uTo = min(radius, width - 1 - ix);
+        for (var dv = vFrom; dv <= vTo; dv += 1) {
+            var wy = PEAK * ky[dv + radius];
+            var row = (iy + dv) * width + ix;
+            for (var du = uFrom; du <= uTo; du += 1) {
+                var w = wy * kx[du + radius];
+                add(row + du, v[o + 3] * w, v[o + 4] * w, v[o + 5] * w);
+            }
+        }
+    }
+
+    // Disks are anti-aliased by approximating the fraction of each pixel they cover by the
+    // distance of its center to their edge.
+    private void renderDisk(double[] v, int o, int rowFrom, int rowTo) {
+        var x = v[o];
+        var y = v[o + 1];
+        var radius = v[o + 2] / 2d;
+        var yFrom = max(rowFrom, (int) floor(y - radius - 1));
+        var yTo = min(rowTo - 1, (int) ceil(y + radius + 1));
+        var xFrom = max(0, (int) floor(x - radius - 1));
+        var xTo = min(width - 1, (int) ceil(x + radius + 1));
+        for (var py = yFrom; py <= yTo; py += 1) {
+            for (var px = xFrom; px <= xTo; px += 1) {
+                var coverage = min(radius - hypot(px + 0.5 - x, py + 0.5 - y) + 0.5, 1);
+                if (coverage > 0)
+                    add(py * width + px, v[o + 3] * coverage, v[o + 4] * coverage, v[o + 5] * coverage);
+            }
+        }
+    }
+
+    // Segments are one pixel wide, and anti-aliased by approximating the fraction of each pixel
+    // they cover by the distance of its center to them.
+    private void renderSegment(double[] v, int o, int rowFrom, int rowTo) {
+        var x0 = v[o];
+        var y0 = v[o + 1];
+        var x1 = v[o + 2];
+        var y1 = v[o + 3];
+        var reach = 1d;
+        var yFrom = max(rowFrom, (int) floor(min(y0, y1) - reach));
+        var yTo = min(rowTo - 1, (int) ceil(max(y0, y1) + reach));
+        for (var py = yFrom; py <= yTo; py += 1) {
+            var yc = py + 0.5;
+            // The part of the segment which is within reach of the row
+            var tFrom = 0d;
+            var tTo = 1d;
+            if (y1 != y0) {
+                var ta = (yc - reach - y0) / (y1 - y0);
+                var tb = (yc + reach - y0) / (y1 - y0);
+                tFrom = max(tFrom, min(ta, tb));
+                tTo = min(tTo, max(ta, tb));
+                if (tFrom > tTo)
+                    continue;
+            } else if (abs(y0 - yc) > reach) {
+                continue;
+            }
+            var xa = x0 + tFrom * (x1 - x0);
+            var xb = x0 + tTo * (x1 - x0);
+            var xFrom = max(0, (int) floor(min(xa, xb) - reach));
+            var xTo = min(width - 1, (int) ceil(max(xa, xb) + reach));
+            for (var px = xFrom; px <= xTo; px += 1) {
+                var coverage = reach - distanceToSegment(px + 0.5, yc, x0, y0, x1, y1);
+                if (coverage > 0)
+                    add(py * width + px, v[o + 4] * coverage, v[o + 5] * coverage, v[o + 6] * coverage);
+            }
+        }
+    }
+
+    private static double distanceToSegment(double x, double y, double x0, double y0, double x1, double y1) {
+        var dx = x1 - x0;
+        var dy = y1 - y0;
+        var length2 = dx * dx + dy * dy;
+        var t = length2 > 0 ? max(0, min(((x - x0) * dx + (y - y0) * dy) / length2, 1)) : 0;
+        return hypot(x - (x0 + t * dx), y - (y0 + t * dy));
+    }
+
+    // Adds the given color to the one of the pixel at the given index, saturating each component.
+    private void add(int index, double r, double g, double b) {
+        var p = pixels[index];
+        var pr = min(((p >> 16) & 0xFF) + (int) (r + 0.5), 0xFF);
+        var pg = min(((p >> 8) & 0xFF) + (int) (g + 0.5), 0xFF);
+        var pb = min((p & 0xFF) + (int) (b + 0.5), 0xFF);
+        pixels[index] = 0xFF000000 | pr << 16 | pg << 8 | pb;
+    }
+
+    // A growable list of primitives, each made of stride values and covering a range of rows, and
+    // their binning in the bands of rows they overlap.
+    private static final class PrimitiveList {
+        final int stride;
+        double[] values = new double[0];
+        int size;
+        // The range of rows covered by each primitive, of which only the part in the image is binned
+        double[] tops = new double[0];
+        double[] bottoms = new double[0];
+
+        // The indices of the primitives overlapping band b are
+        // bandPrimitives[bandOffsets[b] .. bandOffsets[b + 1][, computed by bin
+        int[] bandOffsets = new int[1];
+        int[] bandPrimitives = new int[0];
+
+        PrimitiveList(int stride) {
+            this.stride = stride;
+        }
+
+        // Appends a primitive covering the given range of rows, and returns the index of its first
+        // value.
+        int add(double top, double bottom) {
+            if ((size + 1) * stride > values.length)
+                values = Arrays.copyOf(values, max(2 * values.length, 64 * stride));
+            if (size + 1 > tops.length) {
+                tops = Arrays.copyOf(tops, max(2 * tops.length, 64));
+                bottoms = Arrays.copyOf(bottoms, tops.length);
+            }
+            tops[size] = top;
+            bottoms[size] = bottom;
+            size += 1;
+            return (size - 1) * stride;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void bin(int bandCount) {
+            if (bandOffsets.length < bandCount + 1)
+                bandOffsets = new int[bandCount + 1];
+            else
+                Arrays.fill(bandOffsets, 0, bandCount + 1, 0);
+
+            // Counts the primitives of each band in bandOffsets[b + 1], then turns the counts into
+            // offsets, and finally uses bandOffsets[b] as the insertion point of band b, which
+            // shifts the offsets by one band
+            for (var i = 0; i < size; i += 1) {
+                for (var b = firstBand(i); b <= lastBand(i, bandCount); b += 1)
+                    bandOffsets[b + 1] += 1;
+            }
+            for (var b = 0; b < bandCount; b += 1)
+                bandOffsets[b + 1] += bandOffsets[b];
+            if (bandPrimitives.length < bandOffsets[bandCount])
+                bandPrimitives = new int[max(bandOffsets[bandCount], 2 * bandPrimitives.length)];
+            for (var i = 0; i < size; i += 1) {
+                for (var b = firstBand(i); b <= lastBand(i, bandCount); b += 1) {
+                    bandPrimitives[bandOffsets[b]] = i;
+                    bandOffsets[b] += 1;
+                }
+            }
+            System.arraycopy(bandOffsets, 0, bandOffsets, 1, bandCount);
+            bandOffsets[0] = 0;
+        }
+
+        private int firstBand(int i) {
+            return max(0, (int) floor(tops[i] / BAND_ROWS));
+        }
+
+        private int lastBand(int i, int bandCount) {
+            return min(bandCount - 1, (int) floor(bottoms[i] / BAND_ROWS));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package rigel.gui;
+
+import static java.lang.Math.*;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+// Star disks pre-rendered in a single image, quantised by color temperature (rows) and diameter
+// (columns), from which stars are drawn with a single drawImage each instead of a fill change and
+// an anti-aliased oval.
+final class StarSpriteAtlas {
+    // Temperatures are quantised uniformly in reciprocal temperature, in which the color of black
+    // bodies varies roughly uniformly, between the bounds of BlackBodyColor
+    private static final double MIN_RECIPROCAL_TEMPERATURE = 1d / 40_000;
+    private static final double MAX_RECIPROCAL_TEMPERATURE = 1d / 1_000;
+    private static final int TEMPERATURE_BUCKETS = 32;
+    // Diameters are quantised uniformly between 0 and the maximal diameter
+    private static final int DIAMETER_BUCKETS = 24;
+    // Pixels are sampled on a grid of this size, to anti-alias the edges of the disks
+    private static final int SUBSAMPLES = 4;
+    private static final double HALF_PIXEL_DIAGONAL = sqrt(2) / 2d;
+
+    private final double maxDiameter;
+    // The size of the (square) cell of each sprite, whose disk is centered in it
+    private final int cellSize;
+    private final WritableImage image;
+
+    StarSpriteAtlas(double maxDiameter) {
+        this.maxDiameter = maxDiameter;
+        this.cellSize = (int) ceil(maxDiameter) + 2;
+
+        var width = DIAMETER_BUCKETS * cellSize;
+        var height = TEMPERATURE_BUCKETS * cellSize;
+        var pixels = new int[width * height];
+        for (var t = 0; t < TEMPERATURE_BUCKETS; t += 1) {
+            var color = BlackBodyColor.colorForTemperature(bucketTemperature(t));
+            var rgb = (int) round(color.getRed() * 255) << 16
+                    | (int) round(color.getGreen() * 255) << 8
+                    | (int) round(color.getBlue() * 255);
+            for (var d = 0; d < DIAMETER_BUCKETS; d += 1)
+                drawDisk(pixels, width, d * cellSize, t * cellSize, bucketDiameter(d), rgb);
+        }
+        this.image = new WritableImage(width, height);
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+    }
+
+    double maxDiameter() {
+        return maxDiameter;
+    }
+
+    // Draws the sprite closest to a disk of the given diameter and color temperature, centered on
+    // the given point rounded to whole pixels, so that the sprite is copied without being resampled
+    // (which would blur it).
+    void draw(GraphicsContext ctx, double x, double y, double diameter, double temperature) {
+        var column = diameterBucket(diameter);
+        var row = temperatureBucket(temperature);
+        var half = cellSize / 2d;
+        ctx.drawImage(image, column * cellSize, row * cellSize, cellSize, cellSize,
+                rint(x - half), rint(y - half), cellSize, cellSize);
+    }
+
+    private int diameterBucket(double diameter) {
+        if (!(maxDiameter > 0))
+            return 0;
+        var d = (int) round(diameter / maxDiameter * (DIAMETER_BUCKETS - 1));
+        return max(0, min(d, DIAMETER_BUCKETS - 1));
+    }
+
+    private double bucketDiameter(int bucket) {
+        return maxDiameter * bucket / (DIAMETER_BUCKETS - 1);
+    }
+
+    private static int temperatureBucket(double temperature) {
+        var t = (1d / temperature - MIN_RECIPROCAL_TEMPERATURE) / (MAX_RECIPROCAL_TEMPERATURE - MIN_RECIPROCAL_TEMPERATURE);
+        return max(0, min((int) (t * TEMPERATURE_BUCKETS), TEMPERATURE_BUCKETS - 1));
+    }
+
+    private static double bucketTemperature(int bucket) {
+        var t = (bucket + 0.5) / TEMPERATURE_BUCKETS;
+        return 1d / (MIN_RECIPROCAL_TEMPERATURE + t * (MAX_RECIPROCAL_TEMPERATURE - MIN_RECIPROCAL_TEMPERATURE));
+    }
+
+    // Draws a disk of the given diameter and color in the cell whose top left corner is at (x0, y0),
+    // its opacity being the fraction of the samples of each pixel which lie in it.
+    private void drawDisk(int[] pixels, int width, int x0, int y0, double diameter, int rgb) {
+        var center = cellSize / 2d;
+        var radius = diameter / 2d;
+        var radius2 = radius * radius;
+        for (var y = 0; y < cellSize; y += 1) {
+            for (var x = 0; x < cellSize; x += 1) {
+                // Only the pixels crossed by the edge of the disk are sampled
+                var distance = hypot(x + 0.5 - center, y + 0.5 - center);
+                int alpha;
+                if (distance + HALF_PIXEL_DIAGONAL <= radius) {
+                    alpha = 255;
+                } else if (distance - HALF_PIXEL_DIAGONAL > radius) {
+                    alpha = 0;
+                } else {
+                    var inside = 0;
+                    for (var sy = 0; sy < SUBSAMPLES; sy += 1) {
+                        var dy = y + (sy + 0.5) / SUBSAMPLES - center;
+                        for (var sx = 0; sx < SUBSAMPLES; sx += 1) {
+                            var dx = x + (sx + 0.5) / SUBSAMPLES - center;
+                            if (dx * dx + dy * dy <= radius2)
+                                inside += 1;
+                        }
+                    }
+                    alpha = 255 * inside / (SUBSAMPLES * SUBSAMPLES);
+                }
+                pixels[(y0 + y) * width + x0 + x] = alpha << 24 | rgb;
+            }
+        }
+    }
+}
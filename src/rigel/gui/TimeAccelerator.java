@@ -1,16 +1,23 @@
 package rigel.gui;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.time.ZonedDateTime;
-import java.time.temporal.ChronoUnit;
 
 @FunctionalInterface
 public interface TimeAccelerator {
-    ZonedDateTime adjust(ZonedDateTime startingSimulatedTime, long elapsedRealNs);
+    // Instants hold seconds and nanoseconds since January 1 1970, and therefore cover any date the
+    // user may choose, unlike a single count of nanoseconds (which only covers 1677-2262).
+    Instant adjust(Instant startingSimulatedTime, long elapsedRealNs);
+
+    default ZonedDateTime adjust(ZonedDateTime startingSimulatedTime, long elapsedRealNs) {
+        return adjust(startingSimulatedTime.toInstant(), elapsedRealNs)
+                .atZone(startingSimulatedTime.getZone());
+    }
 
     static TimeAccelerator continuous(int factor) {
         return (start, elapsedNs) ->
-                start.plus(factor * elapsedNs, ChronoUnit.NANOS);
+                start.plus(Duration.ofNanos(elapsedNs).multipliedBy(factor));
     }
 
     static TimeAccelerator discrete(Duration step, long stepsPerSecond) {
@@ -1,15 +1,7 @@
 package rigel.gui;
 
-import java.time.ZonedDateTime;
-
-import javafx.animation.AnimationTimer;
-import javafx.beans.property.BooleanProperty;
-import javafx.beans.property.ObjectProperty;
-import javafx.beans.property.ReadOnlyBooleanProperty;
-import javafx.beans.property.SimpleBooleanProperty;
-import javafx.beans.property.SimpleObjectProperty;
-
-import java.time.ZonedDateTime;
+import java.time.Instant;
+import java.time.ZoneId;
 
 import javafx.animation.AnimationTimer;
 import javafx.beans.property.BooleanProperty;
@@ -25,7 +17,12 @@ public final class TimeAnimator extends AnimationTimer {
     private final BooleanProperty running;
 
     private long realStart;
-    private ZonedDateTime simulatedStart;
+    // The simulated start and its zone, both null until the first frame
+    private Instant simulatedStart;
+    private ZoneId simulatedZone;
+    // The instant last set in the bean, so that frames which do not change it (e.g. between two
+    // steps of a discrete accelerator) leave the bean, and therefore the sky, untouched
+    private Instant simulatedNow;
 
     public TimeAnimator(DateTimeBean dateTimeBean) {
         this.dateTimeBean = dateTimeBean;
@@ -57,6 +54,8 @@ public final class TimeAnimator extends AnimationTimer {
     public void start() {
         realStart = 0;
         simulatedStart = null;
+        simulatedZone = null;
+        simulatedNow = null;
         running.set(true);
         super.start();
     }
@@ -75,11 +74,20 @@ public final class TimeAnimator extends AnimationTimer {
     @Override
     public void handle(long realNow) {
         if (simulatedStart == null) {
+            var start = dateTimeBean.getZonedDateTime();
             realStart = realNow;
-            simulatedStart = dateTimeBean.getZonedDateTime();
+            simulatedStart = start.toInstant();
+            simulatedZone = start.getZone();
+            simulatedNow = simulatedStart;
         } else {
             var elapsedRealNs = realNow - realStart;
-            dateTimeBean.setZonedDateTime(accelerator.get().adjust(simulatedStart, elapsedRealNs));
+            var next = accelerator.get().adjust(simulatedStart, elapsedRealNs);
+            if (next.equals(simulatedNow))
+                return;
+            simulatedNow = next;
+            // The bean holds ZonedDateTime components, so the conversion happens only here; they
+            // are set as a single change, so that the sky is computed once per frame
+            dateTimeBean.setZonedDateTime(next.atZone(simulatedZone));
         }
     }
 }